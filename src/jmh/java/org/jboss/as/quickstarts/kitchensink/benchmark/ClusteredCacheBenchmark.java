@@ -0,0 +1,163 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2015, Red Hat, Inc. and/or its affiliates, and individual
+ * contributors by the @authors tag. See the copyright.txt in the
+ * distribution for a full listing of individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.as.quickstarts.kitchensink.benchmark;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import jakarta.persistence.Persistence;
+
+import org.hibernate.Session;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.jboss.as.quickstarts.kitchensink.model.Member;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+/**
+ * Several nodes, each with its own {@link EntityManagerFactory}, sharing an embedded H2 database and a clustered
+ * Infinispan second-level cache over an in-JVM JGroups stack, as the pods of the application would. All the members
+ * are read on the first node, then again on the second one, and so on; after each iteration the number of database
+ * reads per member, summed over the nodes, is printed: it grows with the number of nodes with the "entity"
+ * invalidation cache, and stays at one with the "replicated-entity" cache.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class ClusteredCacheBenchmark {
+
+    @Param({ "1000" })
+    private int tableSize;
+
+    @Param({ "3" })
+    private int nodes;
+
+    @Param({ "entity", "replicated-entity" })
+    private String entityCache;
+
+    private final List<EntityManagerFactory> cluster = new ArrayList<>();
+
+    private final List<Long> ids = new ArrayList<>();
+
+    private final List<String> emails = new ArrayList<>();
+
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        for (int i = 0; i < nodes; i++) {
+            // The first node creates the schema, the others find it in place
+            cluster.add(Persistence.createEntityManagerFactory("benchmark", properties(i == 0 ? "create-drop" : "none")));
+        }
+        EntityManager em = cluster.get(0).createEntityManager();
+        em.getTransaction().begin();
+        for (int i = 0; i < tableSize; i++) {
+            Member member = Members.valid(i);
+            em.persist(member);
+            ids.add(member.getId());
+            emails.add(member.getEmail());
+        }
+        em.getTransaction().commit();
+        em.close();
+        // Start from cold caches, as after a rolling restart
+        for (EntityManagerFactory emf : cluster) {
+            emf.getCache().evictAll();
+            statistics(emf).clear();
+        }
+    }
+
+    private Map<String, Object> properties(String schema) {
+        Map<String, Object> properties = new HashMap<>();
+        properties.put("hibernate.hbm2ddl.auto", schema);
+        properties.put("jakarta.persistence.sharedCache.mode", "ENABLE_SELECTIVE");
+        properties.put("hibernate.cache.use_second_level_cache", "true");
+        properties.put("hibernate.cache.region.factory_class", "infinispan");
+        properties.put("hibernate.cache.infinispan.cfg", "infinispan-cluster.xml");
+        properties.put("hibernate.cache.infinispan.entity.cfg", entityCache);
+        properties.put("hibernate.cache.infinispan.naturalid.cfg", entityCache);
+        properties.put("hibernate.generate_statistics", "true");
+        properties.put("hibernate.session.events.log", "false");
+        return properties;
+    }
+
+    @TearDown(Level.Iteration)
+    public void report() {
+        long reads = 0;
+        for (EntityManagerFactory emf : cluster) {
+            Statistics statistics = statistics(emf);
+            reads += statistics.getEntityLoadCount() + statistics.getNaturalIdQueryExecutionCount();
+        }
+        int members = Math.min(tableSize, next);
+        System.out.printf("%n%s: %.2f database reads per member over %d nodes%n", entityCache,
+                (double) reads / members, nodes);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        for (int i = cluster.size() - 1; i >= 0; i--) {
+            cluster.get(i).close();
+        }
+    }
+
+    private static Statistics statistics(EntityManagerFactory emf) {
+        return emf.unwrap(SessionFactory.class).getStatistics();
+    }
+
+    /**
+     * Returns the node of the next read: every member is read on a node, then on the next one, and so on.
+     */
+    private EntityManager nextNode() {
+        return cluster.get(next / tableSize % nodes).createEntityManager();
+    }
+
+    private int nextMember() {
+        return next++ % tableSize;
+    }
+
+    @Benchmark
+    public Member findById() {
+        EntityManager em = nextNode();
+        try {
+            return em.find(Member.class, ids.get(nextMember()));
+        } finally {
+            em.close();
+        }
+    }
+
+    @Benchmark
+    public Member findByEmail() {
+        EntityManager em = nextNode();
+        try {
+            return em.unwrap(Session.class).bySimpleNaturalId(Member.class).load(emails.get(nextMember()));
+        } finally {
+            em.close();
+        }
+    }
+}
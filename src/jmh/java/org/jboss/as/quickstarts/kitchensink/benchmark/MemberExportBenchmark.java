@@ -0,0 +1,131 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2015, Red Hat, Inc. and/or its affiliates, and individual
+ * contributors by the @authors tag. See the copyright.txt in the
+ * distribution for a full listing of individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.as.quickstarts.kitchensink.benchmark;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.concurrent.TimeUnit;
+
+import jakarta.json.Json;
+import jakarta.json.stream.JsonGenerator;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import jakarta.persistence.Persistence;
+
+import org.jboss.as.quickstarts.kitchensink.data.MemberRepository;
+import org.jboss.as.quickstarts.kitchensink.rest.MemberExport;
+import org.jboss.as.quickstarts.kitchensink.util.ReadRouting;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+/**
+ * Full exports of the members table of an embedded H2 database, streamed from a database cursor as the member export
+ * endpoints do, in each representation: the JSON array of GET /members, newline delimited JSON and CBOR, with or without
+ * gzip. Each call returns the size of its export.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class MemberExportBenchmark {
+
+    @Param({ "100000" })
+    private int tableSize;
+
+    @Param({ "json", "ndjson", "cbor" })
+    private String format;
+
+    @Param({ "false", "true" })
+    private boolean gzip;
+
+    private EntityManagerFactory emf;
+
+    private EntityManager em;
+
+    private MemberRepository repository;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        emf = Persistence.createEntityManagerFactory("benchmark");
+        em = emf.createEntityManager();
+        em.getTransaction().begin();
+        for (int i = 0; i < tableSize; i++) {
+            em.persist(Members.valid(i));
+            if (i % 50 == 49) {
+                em.flush();
+                em.clear();
+            }
+        }
+        em.getTransaction().commit();
+        em.clear();
+
+        repository = new MemberRepository();
+        Members.inject(repository, em);
+        Members.inject(repository, new ReadRouting());
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        em.close();
+        emf.close();
+    }
+
+    @Benchmark
+    public long export() throws IOException {
+        CountingOutputStream counter = new CountingOutputStream();
+        OutputStream output = gzip ? MemberExport.gzip(counter) : counter;
+        if ("json".equals(format)) {
+            try (JsonGenerator json = Json.createGenerator(output)) {
+                json.writeStartArray();
+                repository.forEachOrderedById(member -> json.writeStartObject()
+                    .write("id", member.getId())
+                    .write("name", member.getName())
+                    .write("email", member.getEmail())
+                    .write("phoneNumber", member.getPhoneNumber())
+                    .writeEnd());
+                json.writeEnd();
+            }
+        } else {
+            try (MemberExport export = "cbor".equals(format) ? MemberExport.cbor(output) : MemberExport.ndjson(output)) {
+                repository.forEachOrderedById(export);
+            }
+        }
+        return counter.count;
+    }
+
+    private static class CountingOutputStream extends OutputStream {
+
+        private long count;
+
+        @Override
+        public void write(int b) {
+            count++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+            count += len;
+        }
+    }
+}
@@ -0,0 +1,104 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2015, Red Hat, Inc. and/or its affiliates, and individual
+ * contributors by the @authors tag. See the copyright.txt in the
+ * distribution for a full listing of individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.as.quickstarts.kitchensink.benchmark;
+
+import java.io.ByteArrayOutputStream;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import jakarta.json.Json;
+import jakarta.json.bind.Jsonb;
+import jakarta.json.bind.JsonbBuilder;
+import jakarta.json.stream.JsonGenerator;
+
+import org.jboss.as.quickstarts.kitchensink.model.Member;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+/**
+ * JSON (de)serialization of members: JSON-B, which the REST layer uses for single members and request bodies, and the JSON-P
+ * generator GET /members uses to stream the list.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class MemberJsonBenchmark {
+
+    @Param({ "100", "10000" })
+    private int listSize;
+
+    private Jsonb jsonb;
+
+    private Member member;
+
+    private String memberJson;
+
+    private List<Member> members;
+
+    @Setup
+    public void setUp() {
+        jsonb = JsonbBuilder.create();
+        member = Members.list(1).get(0);
+        memberJson = jsonb.toJson(member);
+        members = Members.list(listSize);
+    }
+
+    @TearDown
+    public void tearDown() throws Exception {
+        jsonb.close();
+    }
+
+    @Benchmark
+    public String serializeMember() {
+        return jsonb.toJson(member);
+    }
+
+    @Benchmark
+    public Member deserializeMember() {
+        return jsonb.fromJson(memberJson, Member.class);
+    }
+
+    @Benchmark
+    public String serializeList() {
+        return jsonb.toJson(members);
+    }
+
+    @Benchmark
+    public int streamList() {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        try (JsonGenerator json = Json.createGenerator(output)) {
+            json.writeStartArray();
+            for (Member m : members) {
+                json.writeStartObject()
+                    .write("id", m.getId())
+                    .write("name", m.getName())
+                    .write("email", m.getEmail())
+                    .write("phoneNumber", m.getPhoneNumber())
+                    .writeEnd();
+            }
+            json.writeEnd();
+        }
+        return output.size();
+    }
+}
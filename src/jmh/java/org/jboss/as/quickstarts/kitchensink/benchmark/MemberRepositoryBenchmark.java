@@ -0,0 +1,152 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2015, Red Hat, Inc. and/or its affiliates, and individual
+ * contributors by the @authors tag. See the copyright.txt in the
+ * distribution for a full listing of individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.as.quickstarts.kitchensink.benchmark;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import jakarta.persistence.Persistence;
+
+import org.jboss.as.quickstarts.kitchensink.data.MemberCursor;
+import org.jboss.as.quickstarts.kitchensink.data.MemberRepository;
+import org.jboss.as.quickstarts.kitchensink.model.Member;
+import org.jboss.as.quickstarts.kitchensink.model.MemberSummary;
+import org.jboss.as.quickstarts.kitchensink.util.ReadRouting;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * The {@link MemberRepository} queries against an embedded H2 database seeded with members. The persistence context is
+ * cleared before each call, as it would be for each request in the server, so every call reaches the database.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class MemberRepositoryBenchmark {
+
+    @Param({ "1000", "100000" })
+    private int tableSize;
+
+    private EntityManagerFactory emf;
+
+    private EntityManager em;
+
+    private MemberRepository repository;
+
+    private MemberCursor middle;
+
+    private List<String> emails;
+
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        emf = Persistence.createEntityManagerFactory("benchmark");
+        em = emf.createEntityManager();
+        em.getTransaction().begin();
+        for (int i = 0; i < tableSize; i++) {
+            em.persist(Members.valid(i));
+            if (i % 50 == 49) {
+                em.flush();
+                em.clear();
+            }
+        }
+        em.getTransaction().commit();
+        em.clear();
+
+        repository = new MemberRepository();
+        Members.inject(repository, em);
+        Members.inject(repository, new ReadRouting());
+        middle = MemberCursor.after(repository.findPageOrderedByName(null, tableSize / 2).get(tableSize / 2 - 1));
+        emails = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            emails.add(Members.valid(i * (tableSize / 100)).getEmail());
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        em.close();
+        emf.close();
+    }
+
+    private String nextEmail() {
+        next = (next + 1) % emails.size();
+        return emails.get(next);
+    }
+
+    @Benchmark
+    public Member findById() {
+        em.clear();
+        return repository.findById((long) (next++ % tableSize) + 1);
+    }
+
+    @Benchmark
+    public Optional<MemberSummary> findSummaryById() {
+        em.clear();
+        return repository.findSummaryById((long) (next++ % tableSize) + 1);
+    }
+
+    @Benchmark
+    public Optional<Member> findByEmail() {
+        em.clear();
+        return repository.findByEmail(nextEmail());
+    }
+
+    @Benchmark
+    public List<MemberSummary> findFirstPage() {
+        em.clear();
+        return repository.findPageOrderedByName(null, 50);
+    }
+
+    @Benchmark
+    public List<MemberSummary> findMiddlePage() {
+        em.clear();
+        return repository.findPageOrderedByName(middle, 50);
+    }
+
+    @Benchmark
+    public void streamAllOrderedByName(Blackhole blackhole) {
+        repository.forEachOrderedByName(blackhole::consume);
+    }
+
+    @Benchmark
+    public Set<String> findExistingEmails() {
+        em.clear();
+        return repository.findExistingEmails(emails);
+    }
+
+    @Benchmark
+    public List<MemberSummary> searchByPrefix() {
+        em.clear();
+        return repository.searchByPrefix(nextEmail().substring(0, 8), 20);
+    }
+}
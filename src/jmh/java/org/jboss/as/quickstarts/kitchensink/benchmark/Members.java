@@ -0,0 +1,81 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2015, Red Hat, Inc. and/or its affiliates, and individual
+ * contributors by the @authors tag. See the copyright.txt in the
+ * distribution for a full listing of individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.as.quickstarts.kitchensink.benchmark;
+
+import java.lang.reflect.Field;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.jboss.as.quickstarts.kitchensink.model.Member;
+
+/**
+ * Sample data and wiring shared by the benchmarks.
+ */
+public final class Members {
+
+    private static final String[] NAMES = { "Jane Doe", "John Smith", "Mary Major", "Richard Roe", "Ann Other" };
+
+    private Members() {
+    }
+
+    public static Member valid(int i) {
+        Member member = new Member();
+        member.setName(NAMES[i % NAMES.length]);
+        member.setEmail("member" + i + "@mailinator.com");
+        member.setPhoneNumber(String.valueOf(2125550000L + i));
+        return member;
+    }
+
+    /**
+     * A member breaking every constraint of the name, email and phone number fields.
+     */
+    public static Member invalid() {
+        Member member = new Member();
+        member.setName("R2D2");
+        member.setEmail("not an email");
+        member.setPhoneNumber("12");
+        return member;
+    }
+
+    public static List<Member> list(int size) {
+        List<Member> members = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            Member member = valid(i);
+            member.setId((long) i);
+            members.add(member);
+        }
+        return members;
+    }
+
+    /**
+     * Sets every field of the target assignable from the type of the value, standing in for CDI injection.
+     */
+    public static void inject(Object target, Object value) {
+        for (Class<?> type = target.getClass(); type != Object.class; type = type.getSuperclass()) {
+            for (Field field : type.getDeclaredFields()) {
+                if (field.getType().isInstance(value)) {
+                    try {
+                        field.setAccessible(true);
+                        field.set(target, value);
+                    } catch (IllegalAccessException e) {
+                        throw new IllegalStateException(e);
+                    }
+                }
+            }
+        }
+    }
+}
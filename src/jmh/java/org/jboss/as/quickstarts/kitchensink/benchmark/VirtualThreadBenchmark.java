@@ -0,0 +1,131 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2015, Red Hat, Inc. and/or its affiliates, and individual
+ * contributors by the @authors tag. See the copyright.txt in the
+ * distribution for a full listing of individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.as.quickstarts.kitchensink.benchmark;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import jakarta.persistence.Persistence;
+
+import org.jboss.as.quickstarts.kitchensink.model.Member;
+import org.jboss.as.quickstarts.kitchensink.util.VirtualThreads;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+/**
+ * Load test of the request model: the time to serve a burst of concurrent requests that each look a member up in a
+ * transaction, on a fixed pool of platform threads, as the container worker threads do, or on a virtual thread per request,
+ * as with <code>kitchensink.virtualThreads</code>. The embedded database answers in microseconds, so each request also holds
+ * its connection for the given latency, standing in for the round trips to a remote database.
+ * <p>
+ * The connection pool is as large as the burst, and filled up front, so only the threads limit the concurrency. The virtual thread runs need Java
+ * 21 or later.
+ * </p>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class VirtualThreadBenchmark {
+
+    @Param({ "platform", "virtual" })
+    private String threads;
+
+    // Container worker threads available to requests
+    @Param({ "32" })
+    private int workerThreads;
+
+    @Param({ "512" })
+    private int requests;
+
+    @Param({ "5" })
+    private int databaseLatencyMillis;
+
+    private EntityManagerFactory emf;
+
+    private ExecutorService executor;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        if ("virtual".equals(threads)) {
+            executor = VirtualThreads.newPerTaskExecutor()
+                .orElseThrow(() -> new IllegalStateException("Virtual threads need Java 21 or later"));
+        } else {
+            executor = Executors.newFixedThreadPool(workerThreads);
+        }
+        emf = Persistence.createEntityManagerFactory("benchmark",
+            Map.of("hibernate.connection.pool_size", String.valueOf(requests),
+                "hibernate.connection.initial_pool_size", String.valueOf(requests)));
+        EntityManager em = emf.createEntityManager();
+        em.getTransaction().begin();
+        for (int i = 0; i < requests; i++) {
+            em.persist(Members.valid(i));
+        }
+        em.getTransaction().commit();
+        em.close();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        executor.shutdown();
+        emf.close();
+    }
+
+    @Benchmark
+    public int serveBurst() throws InterruptedException, ExecutionException {
+        List<Future<Member>> responses = new ArrayList<>(requests);
+        for (int i = 0; i < requests; i++) {
+            long id = i + 1;
+            responses.add(executor.submit(() -> lookUp(id)));
+        }
+        int served = 0;
+        for (Future<Member> response : responses) {
+            if (response.get() != null) {
+                served++;
+            }
+        }
+        return served;
+    }
+
+    private Member lookUp(long id) throws InterruptedException {
+        EntityManager em = emf.createEntityManager();
+        try {
+            em.getTransaction().begin();
+            Member member = em.find(Member.class, id);
+            Thread.sleep(databaseLatencyMillis);
+            em.getTransaction().commit();
+            return member;
+        } finally {
+            em.close();
+        }
+    }
+}
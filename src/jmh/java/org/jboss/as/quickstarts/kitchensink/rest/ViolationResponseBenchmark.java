@@ -0,0 +1,64 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2015, Red Hat, Inc. and/or its affiliates, and individual
+ * contributors by the @authors tag. See the copyright.txt in the
+ * distribution for a full listing of individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.as.quickstarts.kitchensink.rest;
+
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Logger;
+
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validation;
+import jakarta.validation.ValidatorFactory;
+import jakarta.ws.rs.core.Response;
+
+import org.jboss.as.quickstarts.kitchensink.benchmark.Members;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * The error path of a registration with invalid input: turning the constraint violations into the "Bad Request" response.
+ * It lives in the package of the REST service to reach its package private method.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class ViolationResponseBenchmark {
+
+    private MemberResourceRESTService service;
+
+    private Set<ConstraintViolation<?>> violations;
+
+    @Setup
+    public void setUp() {
+        service = new MemberResourceRESTService();
+        Members.inject(service, Logger.getLogger(MemberResourceRESTService.class.getName()));
+        try (ValidatorFactory factory = Validation.buildDefaultValidatorFactory()) {
+            violations = new HashSet<>(factory.getValidator().validate(Members.invalid()));
+        }
+    }
+
+    @Benchmark
+    public Response createViolationResponse() {
+        return service.createViolationResponse(violations).build();
+    }
+}
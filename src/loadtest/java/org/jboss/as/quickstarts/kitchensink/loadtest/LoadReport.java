@@ -0,0 +1,227 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2015, Red Hat, Inc. and/or its affiliates, and individual
+ * contributors by the @authors tag. See the copyright.txt in the
+ * distribution for a full listing of individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.as.quickstarts.kitchensink.loadtest;
+
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+
+import org.HdrHistogram.Histogram;
+
+/**
+ * The latencies and errors recorded by the load test, per operation, and their check against the service level objectives.
+ * Each worker thread records into a report of its own, and the reports are added up at the end of the run.
+ * <p>
+ * The objectives are read from system properties: <code>loadtest.slo.p50</code>, <code>loadtest.slo.p99</code> and
+ * <code>loadtest.slo.p999</code> for the latency percentiles in milliseconds, <code>loadtest.slo.errorsPerMillion</code> for
+ * the requests that may get an unexpected status, and <code>loadtest.slo.throughput</code> for the percentage of the target
+ * rate that must be achieved. The latency and error objectives can be set for one operation only, for example with
+ * <code>loadtest.slo.list.p99</code>.
+ * </p>
+ */
+final class LoadReport {
+
+    private static final String[] PERCENTILES = { "p50", "p99", "p999" };
+
+    private static final double[] PERCENTILE_VALUES = { 50.0, 99.0, 99.9 };
+
+    private static final int[] DEFAULT_PERCENTILE_MILLIS = { 50, 250, 1000 };
+
+    private static final int DEFAULT_ERRORS_PER_MILLION = 10_000;
+
+    private static final int DEFAULT_THROUGHPUT_PERCENT = 95;
+
+    // Latencies in microseconds
+    private final Map<Operation, Histogram> latencies = new EnumMap<>(Operation.class);
+
+    private final long[] errors = new long[Operation.values().length];
+
+    // Unexpected statuses and their number of occurrences, -1 standing for requests that failed or timed out
+    private final Map<Integer, Long> unexpectedStatuses = new TreeMap<>();
+
+    private int targetRate;
+
+    private double seconds;
+
+    private ServerMetrics before;
+
+    private ServerMetrics after;
+
+    void record(Operation operation, long latencyNanos, int status) {
+        latencies.computeIfAbsent(operation, o -> new Histogram(3)).recordValue(Math.max(1, latencyNanos / 1000));
+        if (status != operation.getExpectedStatus()) {
+            errors[operation.ordinal()]++;
+            unexpectedStatuses.merge(status, 1L, Long::sum);
+        }
+    }
+
+    void add(LoadReport other) {
+        other.latencies.forEach((operation, histogram) -> latencies.computeIfAbsent(operation, o -> new Histogram(3))
+            .add(histogram));
+        for (int i = 0; i < errors.length; i++) {
+            errors[i] += other.errors[i];
+        }
+        other.unexpectedStatuses.forEach((status, count) -> unexpectedStatuses.merge(status, count, Long::sum));
+    }
+
+    /**
+     * Sets the duration and target rate of the measured part of the run, and the server metrics scraped at its start and end.
+     */
+    void complete(int targetRate, double seconds, ServerMetrics before, ServerMetrics after) {
+        this.targetRate = targetRate;
+        this.seconds = seconds;
+        this.before = before;
+        this.after = after;
+    }
+
+    long requests() {
+        return total().getTotalCount();
+    }
+
+    double throughput() {
+        return requests() / seconds;
+    }
+
+    /**
+     * The objectives that were missed, empty when the run passed.
+     */
+    List<String> violations() {
+        List<String> violations = new ArrayList<>();
+        if (requests() == 0) {
+            violations.add("No request was measured");
+            return violations;
+        }
+        for (Map.Entry<Operation, Histogram> entry : latencies.entrySet()) {
+            Operation operation = entry.getKey();
+            Histogram histogram = entry.getValue();
+            for (int i = 0; i < PERCENTILES.length; i++) {
+                int limit = threshold(operation, PERCENTILES[i], DEFAULT_PERCENTILE_MILLIS[i]);
+                double millis = millis(histogram.getValueAtPercentile(PERCENTILE_VALUES[i]));
+                if (millis > limit) {
+                    violations.add(String.format(Locale.ROOT, "%s %s latency %.1f ms above %d ms", operation.getKey(),
+                        PERCENTILES[i], millis, limit));
+                }
+            }
+            int limit = threshold(operation, "errorsPerMillion", DEFAULT_ERRORS_PER_MILLION);
+            long errorsPerMillion = errors[operation.ordinal()] * 1_000_000 / histogram.getTotalCount();
+            if (errorsPerMillion > limit) {
+                violations.add(String.format(Locale.ROOT, "%s errors %d per million above %d per million",
+                    operation.getKey(), errorsPerMillion, limit));
+            }
+        }
+        int percent = Integer.getInteger("loadtest.slo.throughput", DEFAULT_THROUGHPUT_PERCENT);
+        if (throughput() * 100 < (double) targetRate * percent) {
+            violations.add(String.format(Locale.ROOT, "throughput %.1f requests/s below %d%% of the target %d requests/s",
+                throughput(), percent, targetRate));
+        }
+        return violations;
+    }
+
+    private static int threshold(Operation operation, String name, int defaultValue) {
+        return Integer.getInteger("loadtest.slo." + operation.getKey() + "." + name,
+            Integer.getInteger("loadtest.slo." + name, defaultValue));
+    }
+
+    String toText() {
+        StringBuilder text = new StringBuilder();
+        text.append(String.format(Locale.ROOT, "%-10s %10s %8s %10s %10s %10s %10s%n", "operation", "requests", "errors",
+            "p50 ms", "p99 ms", "p99.9 ms", "max ms"));
+        for (Map.Entry<Operation, Histogram> entry : latencies.entrySet()) {
+            appendRow(text, entry.getKey().getKey(), entry.getValue(), errors[entry.getKey().ordinal()]);
+        }
+        long allErrors = 0;
+        for (long count : errors) {
+            allErrors += count;
+        }
+        appendRow(text, "all", total(), allErrors);
+        text.append(String.format(Locale.ROOT, "%nthroughput: %.1f requests/s over %.0f s, target %d requests/s%n",
+            throughput(), seconds, targetRate));
+        if (!unexpectedStatuses.isEmpty()) {
+            text.append("unexpected statuses: ").append(unexpectedStatuses).append(String.format("%n"));
+        }
+        text.append(String.format(Locale.ROOT,
+            "server: %.0f GC pauses, %.0f ms in total, %.0f ms at most recently, %.1f MB allocated (%.1f MB/s), %.1f MB promoted%n",
+            after.since(before, ServerMetrics.GC_PAUSES), after.since(before, ServerMetrics.GC_PAUSE_SECONDS) * 1000,
+            after.get(ServerMetrics.GC_PAUSE_MAX_SECONDS) * 1000, megabytes(ServerMetrics.ALLOCATED_BYTES),
+            megabytes(ServerMetrics.ALLOCATED_BYTES) / seconds, megabytes(ServerMetrics.PROMOTED_BYTES)));
+        return text.toString();
+    }
+
+    private void appendRow(StringBuilder text, String name, Histogram histogram, long errorCount) {
+        text.append(String.format(Locale.ROOT, "%-10s %10d %8d %10.2f %10.2f %10.2f %10.2f%n", name,
+            histogram.getTotalCount(), errorCount, millis(histogram.getValueAtPercentile(50.0)),
+            millis(histogram.getValueAtPercentile(99.0)), millis(histogram.getValueAtPercentile(99.9)),
+            millis(histogram.getMaxValue())));
+    }
+
+    /**
+     * The report as JSON, for comparing runs and for tooling.
+     */
+    String toJson(List<String> violations) {
+        StringBuilder json = new StringBuilder();
+        json.append("{\n");
+        json.append(String.format(Locale.ROOT, "  \"targetRate\": %d,%n  \"seconds\": %.1f,%n  \"throughput\": %.1f,%n",
+            targetRate, seconds, throughput()));
+        json.append("  \"operations\": {\n");
+        for (Map.Entry<Operation, Histogram> entry : latencies.entrySet()) {
+            appendJson(json, entry.getKey().getKey(), entry.getValue(), errors[entry.getKey().ordinal()]);
+            json.append(",\n");
+        }
+        long allErrors = 0;
+        for (long count : errors) {
+            allErrors += count;
+        }
+        appendJson(json, "all", total(), allErrors);
+        json.append("\n  },\n");
+        json.append(String.format(Locale.ROOT,
+            "  \"server\": {\"gcPauses\": %.0f, \"gcPauseMillis\": %.1f, \"allocatedBytes\": %.0f, \"promotedBytes\": %.0f},%n",
+            after.since(before, ServerMetrics.GC_PAUSES), after.since(before, ServerMetrics.GC_PAUSE_SECONDS) * 1000,
+            after.since(before, ServerMetrics.ALLOCATED_BYTES), after.since(before, ServerMetrics.PROMOTED_BYTES)));
+        json.append("  \"violations\": [");
+        for (int i = 0; i < violations.size(); i++) {
+            json.append(i == 0 ? "\n    \"" : ",\n    \"").append(violations.get(i)).append('"');
+        }
+        json.append(violations.isEmpty() ? "],\n" : "\n  ],\n");
+        json.append("  \"passed\": ").append(violations.isEmpty()).append("\n}\n");
+        return json.toString();
+    }
+
+    private void appendJson(StringBuilder json, String name, Histogram histogram, long errorCount) {
+        json.append(String.format(Locale.ROOT,
+            "    \"%s\": {\"requests\": %d, \"errors\": %d, \"p50\": %.3f, \"p99\": %.3f, \"p999\": %.3f, \"max\": %.3f}", name,
+            histogram.getTotalCount(), errorCount, millis(histogram.getValueAtPercentile(50.0)),
+            millis(histogram.getValueAtPercentile(99.0)), millis(histogram.getValueAtPercentile(99.9)),
+            millis(histogram.getMaxValue())));
+    }
+
+    private Histogram total() {
+        Histogram total = new Histogram(3);
+        latencies.values().forEach(total::add);
+        return total;
+    }
+
+    private double megabytes(String counter) {
+        return after.since(before, counter) / (1024 * 1024);
+    }
+
+    private static double millis(long micros) {
+        return micros / 1000.0;
+    }
+}
@@ -0,0 +1,248 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2015, Red Hat, Inc. and/or its affiliates, and individual
+ * contributors by the @authors tag. See the copyright.txt in the
+ * distribution for a full listing of individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.as.quickstarts.kitchensink.loadtest;
+
+import java.io.IOException;
+import java.net.ConnectException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Load test of the member REST API of a running server. It seeds members with <code>POST /members/batch</code>, then sends
+ * a mix of listings, lookups, registrations, registrations with a taken email and invalid registrations at a fixed rate,
+ * and reports the latency percentiles and errors of each operation, the throughput, and the garbage collection and
+ * allocation of the server, before checking them against the objectives described in {@link LoadReport}.
+ * <p>
+ * Requests are sent on schedule whether or not the server keeps up, and their latency is measured from the time they were
+ * due, so that a stalled server shows in the percentiles rather than slowing the test down. The requests sent during the
+ * warm up are not measured.
+ * </p>
+ * <p>
+ * The test is configured with system properties: <code>loadtest.url</code> for the address of the application,
+ * <code>loadtest.members</code> for the members to seed, <code>loadtest.rate</code> for the requests per second,
+ * <code>loadtest.warmup</code> and <code>loadtest.duration</code> for the seconds of warm up and of measure,
+ * <code>loadtest.threads</code> for the requests in flight at most, <code>loadtest.mix</code> for the weights of the
+ * operations, and <code>loadtest.reportDir</code> for the directory of the reports. Run with the <code>verify</code> argument,
+ * it fails if the last run missed its objectives.
+ * </p>
+ */
+public final class LoadTest {
+
+    private static final String RESULTS_FILE = "loadtest-results.json";
+
+    private static final String VIOLATIONS_FILE = "loadtest-violations.txt";
+
+    private static final int SEED_BATCH_SIZE = 5_000;
+
+    private static final Pattern BATCH_RESULT = Pattern.compile("\"status\"\\s*:\\s*(\\d+)|\"id\"\\s*:\\s*(\\d+)");
+
+    private final String url = System.getProperty("loadtest.url", "http://localhost:8080/kitchensink");
+
+    private final int members = Integer.getInteger("loadtest.members", 10_000);
+
+    private final int rate = Integer.getInteger("loadtest.rate", 200);
+
+    private final int warmupSeconds = Integer.getInteger("loadtest.warmup", 15);
+
+    private final int durationSeconds = Integer.getInteger("loadtest.duration", 60);
+
+    private final int threads = Integer.getInteger("loadtest.threads", 64);
+
+    private final String mix = System.getProperty("loadtest.mix", "list=5,lookup=65,register=20,duplicate=5,invalid=5");
+
+    private final Path reportDir = Path.of(System.getProperty("loadtest.reportDir", "target"));
+
+    private final HttpClient client = HttpClient.newBuilder().connectTimeout(Duration.ofSeconds(10)).build();
+
+    private LoadTest() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        LoadTest loadTest = new LoadTest();
+        if (args.length > 0 && "verify".equals(args[0])) {
+            loadTest.verify();
+        } else {
+            loadTest.run();
+        }
+    }
+
+    private void run() throws IOException, InterruptedException, ExecutionException {
+        URI membersUri = URI.create(url + "/rest/members");
+        awaitReady(URI.create(url + "/rest/ready"));
+
+        String runId = Long.toString(System.currentTimeMillis(), Character.MAX_RADIX);
+        String[] emails = new String[members];
+        long[] ids = seed(URI.create(membersUri + "/batch"), runId, emails);
+        Workload workload = new Workload(membersUri, Workload.parseMix(mix), ids, emails, runId);
+        System.out.printf(Locale.ROOT, "Seeded %d members, sending %d requests/s for %d s of warm up and %d s of measure%n",
+            ids.length, rate, warmupSeconds, durationSeconds);
+
+        long start = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(100);
+        long measureStart = start + TimeUnit.SECONDS.toNanos(warmupSeconds);
+        long end = measureStart + TimeUnit.SECONDS.toNanos(durationSeconds);
+        double interval = 1e9 / rate;
+
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        List<Future<LoadReport>> workers = new ArrayList<>(threads);
+        for (int i = 0; i < threads; i++) {
+            int first = i;
+            workers.add(executor.submit(() -> drive(workload, first, start, measureStart, end, interval)));
+        }
+        URI metricsUri = URI.create(url + "/rest/metrics");
+        sleepUntil(measureStart);
+        ServerMetrics before = ServerMetrics.scrape(client, metricsUri);
+
+        LoadReport report = new LoadReport();
+        try {
+            for (Future<LoadReport> worker : workers) {
+                report.add(worker.get());
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        ServerMetrics after = ServerMetrics.scrape(client, metricsUri);
+        report.complete(rate, (end - measureStart) / 1e9, before, after);
+
+        List<String> violations = report.violations();
+        System.out.print(report.toText());
+        violations.forEach(violation -> System.out.println("SLO missed: " + violation));
+
+        Files.createDirectories(reportDir);
+        Files.writeString(reportDir.resolve(RESULTS_FILE), report.toJson(violations));
+        Files.write(reportDir.resolve(VIOLATIONS_FILE), violations);
+    }
+
+    /**
+     * Sends every request of the schedule whose index is <code>first</code> modulo the number of threads, and records those
+     * due after the warm up.
+     */
+    private LoadReport drive(Workload workload, int first, long start, long measureStart, long end, double interval) {
+        LoadReport report = new LoadReport();
+        for (long i = first;; i += threads) {
+            long due = start + (long) (i * interval);
+            if (due >= end || Thread.currentThread().isInterrupted()) {
+                return report;
+            }
+            sleepUntil(due);
+            Operation operation = workload.next();
+            int status;
+            try {
+                status = client.send(workload.request(operation), HttpResponse.BodyHandlers.discarding()).statusCode();
+            } catch (IOException e) {
+                status = -1;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return report;
+            }
+            if (due >= measureStart) {
+                report.record(operation, System.nanoTime() - due, status);
+            }
+        }
+    }
+
+    private static void sleepUntil(long nanoTime) {
+        for (long wait = nanoTime - System.nanoTime(); wait > 0; wait = nanoTime - System.nanoTime()) {
+            LockSupport.parkNanos(wait);
+        }
+    }
+
+    private void awaitReady(URI ready) throws InterruptedException, IOException {
+        long deadline = System.nanoTime() + TimeUnit.MINUTES.toNanos(2);
+        while (true) {
+            try {
+                if (client.send(HttpRequest.newBuilder(ready).GET().build(), HttpResponse.BodyHandlers.discarding())
+                    .statusCode() == 200) {
+                    return;
+                }
+            } catch (ConnectException e) {
+                // Not started yet
+            }
+            if (System.nanoTime() > deadline) {
+                throw new IOException("The application is not ready at " + ready);
+            }
+            Thread.sleep(1000);
+        }
+    }
+
+    /**
+     * Registers the members in batches, filling in their emails, and returns their ids.
+     */
+    private long[] seed(URI batch, String runId, String[] emails) throws IOException, InterruptedException {
+        long[] ids = new long[emails.length];
+        int seeded = 0;
+        for (int from = 0; from < emails.length; from += SEED_BATCH_SIZE) {
+            int to = Math.min(emails.length, from + SEED_BATCH_SIZE);
+            StringBuilder json = new StringBuilder("[");
+            for (int i = from; i < to; i++) {
+                emails[i] = "seed-" + runId + "-" + i + "@example.com";
+                json.append(i == from ? "" : ",").append(Workload.memberJson(Workload.name(i), emails[i],
+                    Workload.phoneNumber(i)));
+            }
+            json.append(']');
+            HttpResponse<String> response = client.send(HttpRequest.newBuilder(batch)
+                .header("Content-Type", "application/json")
+                .header("Accept", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(json.toString(), StandardCharsets.UTF_8))
+                .build(), HttpResponse.BodyHandlers.ofString());
+            if (response.statusCode() != 200) {
+                throw new IOException("Seeding failed with status " + response.statusCode() + ": " + response.body());
+            }
+            Matcher matcher = BATCH_RESULT.matcher(response.body());
+            while (matcher.find()) {
+                if (matcher.group(1) != null && !"200".equals(matcher.group(1))) {
+                    throw new IOException("Seeding failed: " + response.body());
+                }
+                if (matcher.group(2) != null) {
+                    ids[seeded++] = Long.parseLong(matcher.group(2));
+                }
+            }
+        }
+        if (seeded != ids.length) {
+            throw new IOException("Seeded " + seeded + " members out of " + ids.length);
+        }
+        return ids;
+    }
+
+    private void verify() throws IOException {
+        Path violations = reportDir.resolve(VIOLATIONS_FILE);
+        if (!Files.exists(violations)) {
+            throw new IllegalStateException("No load test report in " + reportDir);
+        }
+        List<String> missed = Files.readAllLines(violations);
+        if (!missed.isEmpty()) {
+            throw new IllegalStateException("The load test missed its objectives: " + String.join("; ", missed)
+                + ". See " + reportDir.resolve(RESULTS_FILE));
+        }
+    }
+}
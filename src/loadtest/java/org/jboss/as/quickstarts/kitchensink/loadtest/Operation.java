@@ -0,0 +1,67 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2015, Red Hat, Inc. and/or its affiliates, and individual
+ * contributors by the @authors tag. See the copyright.txt in the
+ * distribution for a full listing of individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.as.quickstarts.kitchensink.loadtest;
+
+/**
+ * The requests the load test sends, with the status each is expected to get. Any other status counts as an error.
+ */
+public enum Operation {
+
+    /** <code>GET /members</code> */
+    LIST("list", 200),
+
+    /** <code>GET /members/{id}</code> of a seeded member */
+    LOOKUP("lookup", 200),
+
+    /** <code>POST /members</code> of a new member */
+    REGISTER("register", 200),
+
+    /** <code>POST /members</code> of a member with the email of a seeded member */
+    DUPLICATE_EMAIL("duplicate", 409),
+
+    /** <code>POST /members</code> of a member breaking its constraints */
+    INVALID("invalid", 400);
+
+    private final String key;
+
+    private final int expectedStatus;
+
+    Operation(String key, int expectedStatus) {
+        this.key = key;
+        this.expectedStatus = expectedStatus;
+    }
+
+    /**
+     * The name of the operation in the <code>loadtest.mix</code> and <code>loadtest.slo.*</code> properties, and in the report.
+     */
+    public String getKey() {
+        return key;
+    }
+
+    public int getExpectedStatus() {
+        return expectedStatus;
+    }
+
+    public static Operation forKey(String key) {
+        for (Operation operation : values()) {
+            if (operation.key.equals(key)) {
+                return operation;
+            }
+        }
+        throw new IllegalArgumentException("Unknown operation: " + key);
+    }
+}
@@ -0,0 +1,85 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2015, Red Hat, Inc. and/or its affiliates, and individual
+ * contributors by the @authors tag. See the copyright.txt in the
+ * distribution for a full listing of individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.as.quickstarts.kitchensink.loadtest;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * A scrape of the Prometheus metrics of the server, from <code>/rest/metrics</code>. Only the garbage collection and
+ * allocation metrics of the JVM are kept, summed over their tags, so that the difference between two scrapes gives what the
+ * server did in between.
+ */
+final class ServerMetrics {
+
+    static final String GC_PAUSES = "jvm_gc_pause_seconds_count";
+
+    static final String GC_PAUSE_SECONDS = "jvm_gc_pause_seconds_sum";
+
+    static final String GC_PAUSE_MAX_SECONDS = "jvm_gc_pause_seconds_max";
+
+    static final String ALLOCATED_BYTES = "jvm_gc_memory_allocated_bytes_total";
+
+    static final String PROMOTED_BYTES = "jvm_gc_memory_promoted_bytes_total";
+
+    private static final String[] NAMES = { GC_PAUSES, GC_PAUSE_SECONDS, GC_PAUSE_MAX_SECONDS, ALLOCATED_BYTES,
+        PROMOTED_BYTES };
+
+    private final Map<String, Double> values;
+
+    private ServerMetrics(Map<String, Double> values) {
+        this.values = values;
+    }
+
+    static ServerMetrics scrape(HttpClient client, URI uri) throws IOException, InterruptedException {
+        HttpResponse<String> response = client.send(HttpRequest.newBuilder(uri).GET().build(),
+            HttpResponse.BodyHandlers.ofString());
+        if (response.statusCode() != 200) {
+            throw new IOException("Metrics unavailable, status " + response.statusCode() + " from " + uri);
+        }
+        Map<String, Double> values = new HashMap<>();
+        for (String line : response.body().split("\n")) {
+            if (line.startsWith("#")) {
+                continue;
+            }
+            for (String name : NAMES) {
+                if (line.startsWith(name) && (line.charAt(name.length()) == '{' || line.charAt(name.length()) == ' ')) {
+                    double value = Double.parseDouble(line.substring(line.lastIndexOf(' ') + 1));
+                    // The maximum is kept per collector, the other metrics are added up
+                    values.merge(name, value, GC_PAUSE_MAX_SECONDS.equals(name) ? Math::max : Double::sum);
+                }
+            }
+        }
+        return new ServerMetrics(values);
+    }
+
+    double get(String name) {
+        return values.getOrDefault(name, 0.0);
+    }
+
+    /**
+     * The increase of a counter since an earlier scrape.
+     */
+    double since(ServerMetrics earlier, String name) {
+        return get(name) - earlier.get(name);
+    }
+}
@@ -0,0 +1,144 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2015, Red Hat, Inc. and/or its affiliates, and individual
+ * contributors by the @authors tag. See the copyright.txt in the
+ * distribution for a full listing of individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.as.quickstarts.kitchensink.loadtest;
+
+import java.net.URI;
+import java.net.http.HttpRequest;
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * The mix of requests sent by the load test. Operations are drawn at random, in proportion to their weight. Lookups and
+ * duplicate registrations pick one of the seeded members at random, and every other registration uses an email of its own.
+ */
+final class Workload {
+
+    private static final String[] NAMES = { "Jane Doe", "John Smith", "Mary Major", "Richard Roe", "Ann Other" };
+
+    private static final Duration TIMEOUT = Duration.ofSeconds(30);
+
+    private final URI members;
+
+    private final Operation[] operations;
+
+    // Running total of the weights, in the order of the operations
+    private final int[] weights;
+
+    private final long[] ids;
+
+    private final String[] emails;
+
+    private final String runId;
+
+    private final AtomicLong registrations = new AtomicLong();
+
+    Workload(URI members, Map<Operation, Integer> mix, long[] ids, String[] emails, String runId) {
+        this.members = members;
+        this.operations = mix.keySet().toArray(new Operation[0]);
+        this.weights = new int[operations.length];
+        int total = 0;
+        for (int i = 0; i < operations.length; i++) {
+            total += mix.get(operations[i]);
+            weights[i] = total;
+        }
+        if (total == 0) {
+            throw new IllegalArgumentException("The operation mix is empty");
+        }
+        this.ids = ids;
+        this.emails = emails;
+        this.runId = runId;
+    }
+
+    /**
+     * Parses a mix such as <code>lookup=60,register=20</code>, mapping operation names to their weight.
+     */
+    static Map<Operation, Integer> parseMix(String mix) {
+        Map<Operation, Integer> weights = new EnumMap<>(Operation.class);
+        for (String entry : mix.split(",")) {
+            String[] parts = entry.trim().split("=");
+            if (parts.length != 2) {
+                throw new IllegalArgumentException("Expected operation=weight, found: " + entry);
+            }
+            int weight = Integer.parseInt(parts[1].trim());
+            if (weight < 0) {
+                throw new IllegalArgumentException("Negative weight: " + entry);
+            }
+            weights.put(Operation.forKey(parts[0].trim()), weight);
+        }
+        return weights;
+    }
+
+    /**
+     * The JSON of a member, as sent to <code>POST /members</code> and <code>POST /members/batch</code>.
+     */
+    static String memberJson(String name, String email, String phoneNumber) {
+        return "{\"name\":\"" + name + "\",\"email\":\"" + email + "\",\"phoneNumber\":\"" + phoneNumber + "\"}";
+    }
+
+    static String name(long i) {
+        return NAMES[(int) (i % NAMES.length)];
+    }
+
+    static String phoneNumber(long i) {
+        return String.valueOf(2125550000L + i % 1_000_000);
+    }
+
+    Operation next() {
+        int draw = ThreadLocalRandom.current().nextInt(weights[weights.length - 1]);
+        int i = 0;
+        while (weights[i] <= draw) {
+            i++;
+        }
+        return operations[i];
+    }
+
+    HttpRequest request(Operation operation) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        switch (operation) {
+            case LIST:
+                return get(members);
+            case LOOKUP:
+                return get(URI.create(members + "/" + ids[random.nextInt(ids.length)]));
+            case REGISTER:
+                long n = registrations.incrementAndGet();
+                return post(memberJson(name(n), "load-" + runId + "-" + n + "@example.com", phoneNumber(n)));
+            case DUPLICATE_EMAIL:
+                int seeded = random.nextInt(emails.length);
+                return post(memberJson(name(seeded), emails[seeded], phoneNumber(seeded)));
+            case INVALID:
+                return post(memberJson("R2D2", "not an email", "12"));
+            default:
+                throw new IllegalArgumentException(operation.name());
+        }
+    }
+
+    private HttpRequest get(URI uri) {
+        return HttpRequest.newBuilder(uri).timeout(TIMEOUT).header("Accept", "application/json").GET().build();
+    }
+
+    private HttpRequest post(String json) {
+        return HttpRequest.newBuilder(members)
+            .timeout(TIMEOUT)
+            .header("Content-Type", "application/json")
+            .header("Accept", "application/json")
+            .POST(HttpRequest.BodyPublishers.ofString(json))
+            .build();
+    }
+}
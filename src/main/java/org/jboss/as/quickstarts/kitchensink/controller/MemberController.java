@@ -16,6 +16,8 @@
  */
 package org.jboss.as.quickstarts.kitchensink.controller;
 
+import java.util.Map;
+
 import jakarta.annotation.PostConstruct;
 import jakarta.enterprise.inject.Model;
 import jakarta.enterprise.inject.Produces;
@@ -23,9 +25,11 @@ import jakarta.faces.application.FacesMessage;
 import jakarta.faces.context.FacesContext;
 import jakarta.inject.Inject;
 import jakarta.inject.Named;
+import jakarta.ws.rs.core.NewCookie;
 
 import org.jboss.as.quickstarts.kitchensink.model.Member;
 import org.jboss.as.quickstarts.kitchensink.service.MemberRegistration;
+import org.jboss.as.quickstarts.kitchensink.util.ReadRouting;
 
 // The @Model stereotype is a convenience mechanism to make this a request-scoped bean that has an
 // EL name
@@ -40,6 +44,9 @@ public class MemberController {
     @Inject
     private MemberRegistration memberRegistration;
 
+    @Inject
+    private ReadRouting readRouting;
+
     @Produces
     @Named
     private Member newMember;
@@ -52,6 +59,7 @@ public class MemberController {
     public void register() throws Exception {
         try {
             memberRegistration.register(newMember);
+            keepReadingFromPrimary();
             FacesMessage m = new FacesMessage(FacesMessage.SEVERITY_INFO, "Registered!", "Registration successful");
             facesContext.addMessage(null, m);
             initNewMember();
@@ -62,6 +70,15 @@ public class MemberController {
         }
     }
 
+    // Lets the browser see the new member even if the replica of the database lags behind, starting with the member table
+    // rendered in this response
+    private void keepReadingFromPrimary() {
+        NewCookie cookie = readRouting.stickinessCookie();
+        facesContext.getExternalContext().addResponseCookie(cookie.getName(), cookie.getValue(),
+            Map.of("path", cookie.getPath(), "maxAge", cookie.getMaxAge(), "httpOnly", cookie.isHttpOnly()));
+        readRouting.route(cookie.getValue());
+    }
+
     private String getRootErrorMessage(Exception e) {
         // Default to general error message that registration failed.
         String errorMessage = "Registration failed. See server log for more information";
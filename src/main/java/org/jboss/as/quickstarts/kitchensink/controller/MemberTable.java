@@ -0,0 +1,130 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2015, Red Hat, Inc. and/or its affiliates, and individual
+ * contributors by the @authors tag. See the copyright.txt in the
+ * distribution for a full listing of individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.as.quickstarts.kitchensink.controller;
+
+import java.util.List;
+import java.util.Map;
+
+import jakarta.enterprise.inject.Model;
+import jakarta.faces.context.FacesContext;
+import jakarta.inject.Inject;
+
+import org.jboss.as.quickstarts.kitchensink.data.MemberCount;
+import org.jboss.as.quickstarts.kitchensink.data.MemberCursor;
+import org.jboss.as.quickstarts.kitchensink.data.MemberRepository;
+import org.jboss.as.quickstarts.kitchensink.model.MemberSummary;
+
+/**
+ * One page of the member table of the home page, ordered by name. Only the rows of the page are read, with the keyset
+ * queries of {@link MemberRepository}, when the table is rendered: the page to show is given by the <code>after</code> or
+ * <code>before</code> request parameter, an opaque {@link MemberCursor} set by the links to the next and previous pages.
+ * The total number of members comes from {@link MemberCount}.
+ */
+@Model
+public class MemberTable {
+
+    private static final int PAGE_SIZE = 20;
+
+    @Inject
+    private FacesContext facesContext;
+
+    @Inject
+    private MemberRepository repository;
+
+    @Inject
+    private MemberCount memberCount;
+
+    // Loaded on first use
+    private List<MemberSummary> rows;
+
+    private boolean hasNext;
+
+    private boolean hasPrevious;
+
+    public List<MemberSummary> getRows() {
+        if (rows == null) {
+            load();
+        }
+        return rows;
+    }
+
+    public long getCount() {
+        return memberCount.get();
+    }
+
+    /**
+     * @return The cursor of the next page, null on the last page
+     */
+    public String getNextCursor() {
+        List<MemberSummary> page = getRows();
+        return hasNext ? MemberCursor.after(page.get(page.size() - 1)).encode() : null;
+    }
+
+    /**
+     * @return The cursor of the previous page, null on the first page
+     */
+    public String getPreviousCursor() {
+        List<MemberSummary> page = getRows();
+        return hasPrevious ? MemberCursor.before(page.get(0)).encode() : null;
+    }
+
+    private void load() {
+        Map<String, String> parameters = facesContext.getExternalContext().getRequestParameterMap();
+        MemberCursor after = decode(parameters.get("after"));
+        MemberCursor before = decode(parameters.get("before"));
+        if (before != null) {
+            loadBefore(before);
+        } else if (after != null) {
+            loadAfter(after);
+        }
+        // No cursor, or every member on that side of it is gone: start over
+        if (rows == null || rows.isEmpty()) {
+            loadAfter(null);
+        }
+    }
+
+    // One extra row tells whether there is another page in the same direction
+    private void loadAfter(MemberCursor after) {
+        rows = repository.findPageOrderedByName(after, PAGE_SIZE + 1);
+        hasNext = rows.size() > PAGE_SIZE;
+        if (hasNext) {
+            rows = rows.subList(0, PAGE_SIZE);
+        }
+        hasPrevious = after != null;
+    }
+
+    private void loadBefore(MemberCursor before) {
+        rows = repository.findPageBeforeOrderedByName(before, PAGE_SIZE + 1);
+        hasPrevious = rows.size() > PAGE_SIZE;
+        if (hasPrevious) {
+            rows = rows.subList(1, rows.size());
+        }
+        hasNext = true;
+    }
+
+    // A missing or tampered cursor shows the first page
+    private static MemberCursor decode(String token) {
+        if (token == null || token.isEmpty()) {
+            return null;
+        }
+        try {
+            return MemberCursor.decode(token);
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,269 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2015, Red Hat, Inc. and/or its affiliates, and individual
+ * contributors by the @authors tag. See the copyright.txt in the
+ * distribution for a full listing of individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.as.quickstarts.kitchensink.data;
+
+import java.util.Collection;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.stream.Collectors;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.Resource;
+import jakarta.enterprise.concurrent.ManagedExecutorService;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.event.Observes;
+import jakarta.enterprise.event.TransactionPhase;
+import jakarta.inject.Inject;
+
+import org.jboss.as.quickstarts.kitchensink.model.Member;
+import org.jboss.as.quickstarts.kitchensink.model.MemberChange;
+import org.jboss.as.quickstarts.kitchensink.util.CountingBloomFilter;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * Answers whether an email is registered without querying the database when it certainly is not, from a
+ * {@link CountingBloomFilter} of the registered emails. Only emails the filter may hold are looked up with
+ * {@link MemberRepository}, so most checks of a free email, such as those of the registration form as the user types, cost
+ * no query.
+ * <p>
+ * The filter is built in the background by {@link org.jboss.as.quickstarts.kitchensink.service.Warmup Warmup}, from a
+ * scan of the emails of all members, then the emails registered, or set by an update, are added to it once they have
+ * committed, on the committing thread, alongside
+ * {@link org.jboss.as.quickstarts.kitchensink.service.MemberEventDispatcher MemberEventDispatcher}. Until it is built,
+ * every email may be taken, so every check queries the database. Emails are lower-cased, which can only add false
+ * positives.
+ * <p>
+ * The emails of deleted members, and those replaced by an update, are never removed from the filter: an email removed
+ * while the filter is being built, or that was never added to it, would clear the counters of other emails, which would
+ * then wrongly be reported as free. They only add false positives instead, and once the
+ * <code>kitchensink.emailFilter.staleLimit</code> system property of them (1000 by default) have accumulated, the filter
+ * is built again in the background and replaces the current one.
+ * </p>
+ * <p>
+ * The filter is held by each server and only sees the emails registered on it, so it is not built at all when the
+ * <code>kitchensink.clustered</code> system property is true: the servers of a cluster look the emails up in the database,
+ * through the natural id cache they share. Either way the uniqueness of the emails is enforced by the database when members
+ * are stored.
+ * </p>
+ * <p>
+ * The expected number of emails and the false positive rate, in millionths, are read from the
+ * <code>kitchensink.emailFilter.capacity</code> and <code>kitchensink.emailFilter.falsePositivesPerMillion</code> system
+ * properties; together they set the memory taken by the filter. Its size, memory, expected false positive rate and the
+ * outcome of the checks are reported as metrics.
+ * </p>
+ */
+@ApplicationScoped
+public class EmailFilter {
+
+    private final int capacity = Integer.getInteger("kitchensink.emailFilter.capacity", 100_000);
+
+    private final double falsePositiveRate = Integer.getInteger("kitchensink.emailFilter.falsePositivesPerMillion", 10_000)
+        / 1_000_000.0;
+
+    private final int staleLimit = Integer.getInteger("kitchensink.emailFilter.staleLimit", 1000);
+
+    private final boolean clustered = Boolean.getBoolean("kitchensink.clustered");
+
+    @Inject
+    private Logger log;
+
+    @Inject
+    private MemberRepository repository;
+
+    @Inject
+    private MeterRegistry registry;
+
+    @Resource
+    private ManagedExecutorService executor;
+
+    private volatile CountingBloomFilter filter;
+
+    // The filter being built, which the emails registered while the table is scanned are added to as well
+    private volatile CountingBloomFilter building;
+
+    private volatile boolean loaded;
+
+    // Emails of deleted members, or replaced by an update, still held by the filter
+    private final AtomicInteger stale = new AtomicInteger();
+
+    private final AtomicBoolean rebuilding = new AtomicBoolean();
+
+    private Counter rebuilds;
+
+    private Counter free;
+
+    private Counter maybeTaken;
+
+    private Counter falsePositives;
+
+    @PostConstruct
+    public void init() {
+        free = registry.counter("kitchensink.emailfilter.checks", "result", "free");
+        maybeTaken = registry.counter("kitchensink.emailfilter.checks", "result", "maybe_taken");
+        falsePositives = registry.counter("kitchensink.emailfilter.false.positives");
+        rebuilds = registry.counter("kitchensink.emailfilter.rebuilds");
+    }
+
+    /**
+     * Builds the filter from a scan of the emails of all members, unless the application runs in a cluster.
+     */
+    public void load() {
+        if (clustered) {
+            log.info("Clustered, emails are checked in the database");
+            return;
+        }
+        CountingBloomFilter filter = build();
+        loaded = true;
+        log.info("Loaded " + filter.size() + " emails in a filter of " + filter.memoryBytes() / 1024 + " KiB");
+
+        Gauge.builder("kitchensink.emailfilter.emails", this, emailFilter -> emailFilter.filter.size()).register(registry);
+        Gauge.builder("kitchensink.emailfilter.memory", this, emailFilter -> emailFilter.filter.memoryBytes())
+            .baseUnit("bytes")
+            .register(registry);
+        Gauge.builder("kitchensink.emailfilter.false.positive.rate", this,
+            emailFilter -> emailFilter.filter.expectedFalsePositiveRate())
+            .description("False positive rate expected for the number of emails held, "
+                + falsePositiveRate + " once the filter holds " + capacity)
+            .register(registry);
+        Gauge.builder("kitchensink.emailfilter.stale", stale, AtomicInteger::get).register(registry);
+    }
+
+    // Scans the emails of all members into a new filter, which replaces the current one once complete
+    private CountingBloomFilter build() {
+        CountingBloomFilter next = new CountingBloomFilter(capacity, falsePositiveRate);
+        building = next;
+        // The emails deleted from now on may have been read by the scan
+        stale.set(0);
+        try {
+            repository.forEachEmail(email -> next.add(normalize(email)));
+            filter = next;
+        } finally {
+            building = null;
+        }
+        return next;
+    }
+
+    private void rebuild() {
+        if (!rebuilding.compareAndSet(false, true)) {
+            return;
+        }
+        executor.execute(() -> {
+            try {
+                CountingBloomFilter filter = build();
+                rebuilds.increment();
+                log.info("Rebuilt the email filter with " + filter.size() + " emails");
+            } catch (RuntimeException e) {
+                log.log(Level.WARNING, "Could not rebuild the email filter", e);
+            } finally {
+                rebuilding.set(false);
+            }
+        });
+    }
+
+    /**
+     * Checks the filter only.
+     *
+     * @return False if no member uses the email, true if one may use it or the filter is not built yet
+     */
+    public boolean mightBeTaken(String email) {
+        if (!loaded) {
+            return true;
+        }
+        boolean maybe = filter.mightContain(normalize(email));
+        (maybe ? maybeTaken : free).increment();
+        return maybe;
+    }
+
+    /**
+     * Looks an email up in the database, once {@link #mightBeTaken(String)} answered true.
+     *
+     * @return True if a member uses the email
+     */
+    public boolean confirmTaken(String email) {
+        boolean taken = repository.findByEmail(email).isPresent();
+        if (!taken) {
+            falsePositives.increment();
+        }
+        return taken;
+    }
+
+    /**
+     * @return True if a member uses the email, looked up in the database only if the filter may hold it
+     */
+    public boolean isTaken(String email) {
+        return mightBeTaken(email) && confirmTaken(email);
+    }
+
+    /**
+     * Finds which of the given emails are already used by a member, querying only those the filter may hold.
+     *
+     * @return The subset of the given emails that are already registered
+     */
+    public Set<String> findTaken(Collection<String> emails) {
+        Set<String> candidates = emails.stream().filter(this::mightBeTaken).collect(Collectors.toSet());
+        if (candidates.isEmpty()) {
+            return Set.of();
+        }
+        Set<String> taken = repository.findExistingEmails(candidates);
+        falsePositives.increment(candidates.size() - taken.size());
+        return taken;
+    }
+
+    public void onMemberRegistered(@Observes(during = TransactionPhase.AFTER_SUCCESS) final Member member) {
+        add(member.getEmail());
+    }
+
+    public void onMemberChanged(@Observes(during = TransactionPhase.AFTER_SUCCESS) final MemberChange change) {
+        if (filter == null && building == null) {
+            return;
+        }
+        String email = change.getMember().getEmail();
+        if (change.getType() == MemberChange.Type.UPDATED) {
+            if (normalize(email).equals(normalize(change.getPreviousEmail()))) {
+                return;
+            }
+            add(email);
+        }
+        // The email that is no longer used stays in the filter
+        if (stale.incrementAndGet() >= staleLimit && loaded) {
+            rebuild();
+        }
+    }
+
+    private void add(String email) {
+        String normalized = normalize(email);
+        CountingBloomFilter filter = this.filter;
+        if (filter != null) {
+            filter.add(normalized);
+        }
+        CountingBloomFilter building = this.building;
+        if (building != null && building != filter) {
+            building.add(normalized);
+        }
+    }
+
+    private static String normalize(String email) {
+        return email.strip().toLowerCase(Locale.ROOT);
+    }
+}
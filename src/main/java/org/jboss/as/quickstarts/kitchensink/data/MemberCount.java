@@ -0,0 +1,73 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2015, Red Hat, Inc. and/or its affiliates, and individual
+ * contributors by the @authors tag. See the copyright.txt in the
+ * distribution for a full listing of individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.as.quickstarts.kitchensink.data;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.event.ObservesAsync;
+import jakarta.inject.Inject;
+
+import org.jboss.as.quickstarts.kitchensink.model.Member;
+import org.jboss.as.quickstarts.kitchensink.model.MemberChange;
+
+/**
+ * The number of members, shown above the paged member table. Counting the rows scans a whole index, so the count is
+ * cached: it is adjusted as members are registered and deleted on this server, from the asynchronous events forwarded
+ * by {@link org.jboss.as.quickstarts.kitchensink.service.MemberEventDispatcher MemberEventDispatcher}, and counted
+ * again once it is older than the <code>kitchensink.members.countTtl</code> system property, in seconds (10 by
+ * default), which also picks up the changes made on other servers. When the <code>kitchensink.clustered</code> system
+ * property is true, the registrations and deletions made on this server are not counted either, so that all the servers
+ * show the count read from the database.
+ */
+@ApplicationScoped
+public class MemberCount {
+
+    private final long ttl = TimeUnit.SECONDS.toNanos(Integer.getInteger("kitchensink.members.countTtl", 10));
+
+    private final boolean clustered = Boolean.getBoolean("kitchensink.clustered");
+
+    @Inject
+    private MemberRepository repository;
+
+    private final AtomicLong count = new AtomicLong();
+
+    // System.nanoTime() of the last count, 0 until the first one
+    private volatile long countedAt;
+
+    public long get() {
+        long now = System.nanoTime();
+        if (countedAt == 0 || now - countedAt > ttl) {
+            count.set(repository.count());
+            countedAt = now;
+        }
+        return count.get();
+    }
+
+    public void onMemberRegistered(@ObservesAsync final Member member) {
+        if (!clustered) {
+            count.incrementAndGet();
+        }
+    }
+
+    public void onMemberChanged(@ObservesAsync final MemberChange change) {
+        if (!clustered && change.getType() == MemberChange.Type.DELETED) {
+            count.decrementAndGet();
+        }
+    }
+}
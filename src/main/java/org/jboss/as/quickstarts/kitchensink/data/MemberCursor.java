@@ -0,0 +1,89 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2015, Red Hat, Inc. and/or its affiliates, and individual
+ * contributors by the @authors tag. See the copyright.txt in the
+ * distribution for a full listing of individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.as.quickstarts.kitchensink.data;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+import org.jboss.as.quickstarts.kitchensink.model.MemberSummary;
+
+/**
+ * Position in the list of members ordered by name and id, used for keyset (seek) pagination.
+ * <p>
+ * The cursor is handed to clients as an opaque, URL safe token. It only records the sort key of the last row returned, so
+ * the next page is found with an index seek rather than by skipping over an offset.
+ * </p>
+ */
+public final class MemberCursor {
+
+    private static final char SEPARATOR = ':';
+
+    private final String name;
+
+    private final long id;
+
+    private MemberCursor(String name, long id) {
+        this.name = name;
+        this.id = id;
+    }
+
+    /**
+     * @param member The last member of a page
+     * @return A cursor pointing just after the given member
+     */
+    public static MemberCursor after(MemberSummary member) {
+        return new MemberCursor(member.getName(), member.getId());
+    }
+
+    /**
+     * @param member The first member of a page
+     * @return A cursor pointing just before the given member, to get the previous page
+     */
+    public static MemberCursor before(MemberSummary member) {
+        return new MemberCursor(member.getName(), member.getId());
+    }
+
+    /**
+     * Reads a cursor previously produced by {@link #encode()}.
+     *
+     * @param token The opaque cursor token
+     * @return The decoded cursor
+     * @throws IllegalArgumentException If the token is not a valid cursor
+     */
+    public static MemberCursor decode(String token) {
+        String value = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+        // The id is numeric, so the first separator always ends it, whatever the name contains
+        int separator = value.indexOf(SEPARATOR);
+        if (separator < 1) {
+            throw new IllegalArgumentException("Malformed cursor");
+        }
+        return new MemberCursor(value.substring(separator + 1), Long.parseLong(value.substring(0, separator)));
+    }
+
+    public String encode() {
+        String value = Long.toString(id) + SEPARATOR + name;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(value.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public long getId() {
+        return id;
+    }
+}
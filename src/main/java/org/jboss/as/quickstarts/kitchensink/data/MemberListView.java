@@ -0,0 +1,269 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2015, Red Hat, Inc. and/or its affiliates, and individual
+ * contributors by the @authors tag. See the copyright.txt in the
+ * distribution for a full listing of individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.as.quickstarts.kitchensink.data;
+
+import java.time.Instant;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.logging.Logger;
+
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.event.Observes;
+import jakarta.enterprise.event.ObservesAsync;
+import jakarta.enterprise.event.TransactionPhase;
+import jakarta.inject.Inject;
+
+import org.jboss.as.quickstarts.kitchensink.model.Member;
+import org.jboss.as.quickstarts.kitchensink.model.MemberChange;
+import org.jboss.as.quickstarts.kitchensink.model.MemberSummary;
+
+/**
+ * In-memory view of all members, ordered by name. It is loaded in the background by {@link
+ * org.jboss.as.quickstarts.kitchensink.service.Warmup Warmup}, then kept up to date once registrations, updates and
+ * deletions have committed, so reading the list never queries the database. Registrations are added asynchronously, as
+ * forwarded by {@link org.jboss.as.quickstarts.kitchensink.service.MemberEventDispatcher MemberEventDispatcher}, and a
+ * member missing from the view is looked up in the database. Updates and deletions are applied on the committing thread
+ * instead, before the response is sent, so that a client reading a member it has just changed never gets its previous
+ * version and entity tag. Until it is loaded, {@link #isLoaded()} answers false and callers read the members from the
+ * database instead.
+ * <p>
+ * Members are held as read-only {@link MemberSummary} copies in a concurrent skip list, which readers can walk while members
+ * are added, replaced or removed. Callers that need a {@link List} get an immutable snapshot, which is only copied again after
+ * the view has changed. Events may be delivered out of order, so a copy of a member only replaces one with an older version,
+ * and deleted members are not added back.
+ * </p>
+ * <p>
+ * Every change increments the generation of the view, which REST clients get as the entity tag of the list, and members are
+ * also indexed by id so a single member can be served, or found unchanged, without querying the database.
+ * </p>
+ * <p>
+ * The view holds every member on the heap, so it is bounded: beyond the number of members read from the
+ * <code>kitchensink.memberView.capacity</code> system property, it is not loaded, or is cleared, and callers go back to the
+ * database.
+ * </p>
+ * <p>
+ * The view only sees the changes made on this server, so it is not loaded at all when the
+ * <code>kitchensink.clustered</code> system property is true: the servers of a cluster read the members from the database
+ * and from the second-level cache they share.
+ * </p>
+ */
+@ApplicationScoped
+public class MemberListView {
+
+    // Events are delivered out of order within a few seconds, deleted members are remembered for much longer than that
+    private static final long TOMBSTONE_TTL = TimeUnit.MINUTES.toNanos(1);
+
+    private static final Comparator<MemberSummary> BY_NAME = Comparator.comparing(MemberSummary::getName)
+        .thenComparing(MemberSummary::getId);
+
+    @Inject
+    private Logger log;
+
+    @Inject
+    private MemberRepository memberRepository;
+
+    private final int capacity = Integer.getInteger("kitchensink.memberView.capacity", 100_000);
+
+    private final boolean clustered = Boolean.getBoolean("kitchensink.clustered");
+
+    private final ConcurrentSkipListSet<MemberSummary> members = new ConcurrentSkipListSet<>(BY_NAME);
+
+    private final Map<Long, MemberSummary> membersById = new ConcurrentHashMap<>();
+
+    // Ids of the members deleted recently, with the time of their deletion, so that an older event or the load in progress
+    // do not add them back
+    private final Map<Long, Long> deletedIds = new ConcurrentHashMap<>();
+
+    private long lastPruned = System.nanoTime();
+
+    private volatile boolean loading;
+
+    private volatile boolean loaded;
+
+    // Incremented on every change, a snapshot taken at an older generation is stale
+    private final AtomicLong generation = new AtomicLong();
+
+    private volatile Snapshot snapshot;
+
+    private volatile Instant lastModified = Instant.now();
+
+    /**
+     * Loads the view from a scan of the members table, unless the table holds more members than the view may or the
+     * application runs in a cluster. Events
+     * delivered while the table is scanned are applied as they come.
+     */
+    public void load() {
+        if (clustered) {
+            log.info("Clustered, the member list is read from the database");
+            return;
+        }
+        long count = memberRepository.count();
+        if (count > capacity) {
+            log.info(count + " members, more than the " + capacity + " the view may hold, the member list is read from the"
+                + " database");
+            return;
+        }
+        loading = true;
+        try {
+            memberRepository.forEachOrderedByName(this::add);
+            // Unless the view outgrew its capacity meanwhile
+            loaded = loading;
+        } finally {
+            loading = false;
+        }
+        changed();
+        log.info("Loaded " + members.size() + " members");
+    }
+
+    public void onMemberRegistered(@ObservesAsync final Member member) {
+        add(MemberSummary.of(member));
+        changed();
+    }
+
+    public void onMemberChanged(@Observes(during = TransactionPhase.AFTER_SUCCESS) final MemberChange change) {
+        if (change.getType() == MemberChange.Type.DELETED) {
+            remove(change.getMember().getId());
+        } else {
+            add(change.getMember());
+        }
+        changed();
+    }
+
+    /**
+     * @return True once the view holds every member, false while it is loading or when it is not used
+     */
+    public boolean isLoaded() {
+        return loaded;
+    }
+
+    /**
+     * Returns the generation of the view, which changes whenever members are added. Read it before reading the members, so
+     * that a change made meanwhile gives a newer generation than the one returned.
+     */
+    public long getGeneration() {
+        return generation.get();
+    }
+
+    /**
+     * @return The time the view last changed
+     */
+    public Instant getLastModified() {
+        return lastModified;
+    }
+
+    /**
+     * @return The member with the given id, if the view is loaded and holds it
+     */
+    public Optional<MemberSummary> findById(long id) {
+        return loaded ? Optional.ofNullable(membersById.get(id)) : Optional.empty();
+    }
+
+    /**
+     * @return An immutable snapshot of all members, ordered by name
+     */
+    public List<MemberSummary> getMembers() {
+        long current = generation.get();
+        Snapshot s = snapshot;
+        if (s == null || s.generation != current) {
+            s = new Snapshot(current, List.copyOf(members));
+            snapshot = s;
+        }
+        return s.members;
+    }
+
+    /**
+     * Passes every member, ordered by name, to the given action without copying the view. Members registered while the view
+     * is being walked may or may not be seen.
+     */
+    public void forEach(Consumer<MemberSummary> action) {
+        members.forEach(action);
+    }
+
+    // Writers are serialized so that the skip list and the index stay in step, readers are not blocked
+    private synchronized void add(MemberSummary member) {
+        if (!isActive() || deletedIds.containsKey(member.getId())) {
+            return;
+        }
+        MemberSummary previous = membersById.get(member.getId());
+        if (previous != null) {
+            if (isNewer(previous, member)) {
+                return;
+            }
+            // Its name, and so its place in the list, may have changed
+            members.remove(previous);
+        }
+        members.add(member);
+        membersById.put(member.getId(), member);
+        if (membersById.size() > capacity) {
+            log.info("More than " + capacity + " members, the member list is now read from the database");
+            loaded = false;
+            loading = false;
+            members.clear();
+            membersById.clear();
+            deletedIds.clear();
+        }
+    }
+
+    private synchronized void remove(long id) {
+        if (!isActive()) {
+            return;
+        }
+        long now = System.nanoTime();
+        deletedIds.put(id, now);
+        MemberSummary previous = membersById.remove(id);
+        if (previous != null) {
+            members.remove(previous);
+        }
+        // A load in progress may still read members deleted long ago
+        if (!loading && now - lastPruned > TOMBSTONE_TTL) {
+            deletedIds.values().removeIf(deletedAt -> now - deletedAt > TOMBSTONE_TTL);
+            lastPruned = now;
+        }
+    }
+
+    private boolean isActive() {
+        return loading || loaded;
+    }
+
+    private static boolean isNewer(MemberSummary member, MemberSummary other) {
+        return member.getVersion() != null && other.getVersion() != null && member.getVersion() > other.getVersion();
+    }
+
+    private void changed() {
+        lastModified = Instant.now();
+        generation.incrementAndGet();
+    }
+
+    private static final class Snapshot {
+
+        private final long generation;
+
+        private final List<MemberSummary> members;
+
+        private Snapshot(long generation, List<MemberSummary> members) {
+            this.generation = generation;
+            this.members = members;
+        }
+    }
+}
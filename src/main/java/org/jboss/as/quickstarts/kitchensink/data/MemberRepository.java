@@ -19,42 +19,309 @@ package org.jboss.as.quickstarts.kitchensink.data;
 import jakarta.enterprise.context.ApplicationScoped;
 import jakarta.inject.Inject;
 import jakarta.persistence.EntityManager;
-import jakarta.persistence.criteria.CriteriaBuilder;
-import jakarta.persistence.criteria.CriteriaQuery;
-import jakarta.persistence.criteria.Root;
+import jakarta.persistence.TypedQuery;
+import jakarta.transaction.Transactional;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
 
+import org.hibernate.Session;
 import org.jboss.as.quickstarts.kitchensink.model.Member;
+import org.jboss.as.quickstarts.kitchensink.model.MemberSummary;
+import org.jboss.as.quickstarts.kitchensink.model.Member_;
+import org.jboss.as.quickstarts.kitchensink.util.ReadRouting;
+import org.jboss.as.quickstarts.kitchensink.util.Replica;
+import org.jboss.as.quickstarts.kitchensink.util.Timed;
 
+/**
+ * Queries on the members table. Apart from the lookups by id and by email, which go through the second-level cache, they
+ * are named queries declared on {@link Member}: they are compiled once, and their parameters are named after the attributes
+ * of the {@link Member_} metamodel. The methods listing members return read-only {@link MemberSummary} projections rather
+ * than managed entities.
+ * <p>
+ * The listings, searches and exports served to clients read from the replica of the database, unless {@link ReadRouting}
+ * requires the primary for the current request. The other methods stay on the primary: the lookups by id and by email are
+ * mostly answered by its second-level cache, which {@link #findLatest(int)} fills, and the duplicate email check, the feed
+ * replay and the full scans feeding {@link MemberListView} and {@link EmailFilter} must not miss members the replica has
+ * not received yet.
+ * </p>
+ */
 @ApplicationScoped
+@Timed("kitchensink.repository.queries")
 public class MemberRepository {
 
+    // Maximum number of values bound in a single IN clause
+    private static final int IN_CLAUSE_SIZE = 1000;
+
+    // Rows fetched per round trip when streaming
+    private static final int STREAM_FETCH_SIZE = 500;
+
+    // Rows read per query when exporting
+    private static final int EXPORT_PAGE_SIZE = 1000;
+
+    // The order of the prefix searches, on the lower case name the name key is made of
+    private static final Comparator<MemberSummary> BY_NAME_KEY = Comparator
+        .comparing((MemberSummary member) -> member.getName().toLowerCase(Locale.ROOT))
+        .thenComparing(MemberSummary::getId);
+
     @Inject
     private EntityManager em;
 
+    @Inject
+    @Replica
+    private EntityManager replica;
+
+    @Inject
+    private ReadRouting readRouting;
+
     public Member findById(Long id) {
         return em.find(Member.class, id);
     }
 
-    public Member findByEmail(String email) {
-        CriteriaBuilder cb = em.getCriteriaBuilder();
-        CriteriaQuery<Member> criteria = cb.createQuery(Member.class);
-        Root<Member> member = criteria.from(Member.class);
-        // Swap criteria statements if you would like to try out type-safe criteria queries, a new
-        // feature in JPA 2.0
-        // criteria.select(member).where(cb.equal(member.get(Member_.email), email));
-        criteria.select(member).where(cb.equal(member.get("email"), email));
-        return em.createQuery(criteria).getSingleResult();
+    /**
+     * Looks a member up by id, through the second-level cache, and returns a read-only copy of it.
+     */
+    public Optional<MemberSummary> findSummaryById(Long id) {
+        Member member = em.find(Member.class, id, Map.of("org.hibernate.readOnly", true));
+        return member == null ? Optional.empty() : Optional.of(MemberSummary.of(member));
+    }
+
+    /**
+     * Looks a member up by email. The email is the natural id of a member, so the lookup is answered from the natural id
+     * cache when possible. It runs in a transaction to keep the underlying session open while it is used.
+     */
+    @Transactional
+    public Optional<Member> findByEmail(String email) {
+        return em.unwrap(Session.class).bySimpleNaturalId(Member.class).loadOptional(email);
+    }
+
+    /**
+     * Finds which of the given email addresses are already used by a member, with one IN query per thousand addresses.
+     *
+     * @param emails The email addresses to look for
+     * @return The subset of the given addresses that are already registered
+     */
+    public Set<String> findExistingEmails(Collection<String> emails) {
+        List<String> values = new ArrayList<>(emails);
+        Set<String> existing = new HashSet<>();
+        for (int from = 0; from < values.size(); from += IN_CLAUSE_SIZE) {
+            List<String> slice = values.subList(from, Math.min(from + IN_CLAUSE_SIZE, values.size()));
+            existing.addAll(em.createNamedQuery(Member.FIND_EXISTING_EMAILS, String.class)
+                .setParameter(Member_.EMAIL, slice)
+                .getResultList());
+        }
+        return existing;
     }
 
     public List<Member> findAllOrderedByName() {
-        CriteriaBuilder cb = em.getCriteriaBuilder();
-        CriteriaQuery<Member> criteria = cb.createQuery(Member.class);
-        Root<Member> member = criteria.from(Member.class);
-        // Swap criteria statements if you would like to try out type-safe criteria queries, a new
-        // feature in JPA 2.0
-        // criteria.select(member).orderBy(cb.asc(member.get(Member_.name)));
-        criteria.select(member).orderBy(cb.asc(member.get("name")));
-        return em.createQuery(criteria).getResultList();
+        return reader().createNamedQuery(Member.FIND_ALL_ORDERED_BY_NAME, Member.class).getResultList();
+    }
+
+    /**
+     * Returns the most recently registered members. They are read from the primary, and put in its second-level cache as they
+     * are loaded, so this also preloads the cache with the members most likely to be looked up.
+     *
+     * @param limit The maximum number of members to return
+     * @return The members, newest first
+     */
+    public List<Member> findLatest(int limit) {
+        return em.createNamedQuery(Member.FIND_LATEST, Member.class).setMaxResults(limit).getResultList();
+    }
+
+    /**
+     * Returns one page of members ordered by name, using keyset pagination: the page starts right after the given cursor, so
+     * the cost of a page does not depend on how deep into the list it is.
+     *
+     * @param after The cursor returned with the previous page, or null for the first page
+     * @param limit The maximum number of members to return
+     * @return Read-only copies of the members of the page, ordered by name and id
+     */
+    public List<MemberSummary> findPageOrderedByName(MemberCursor after, int limit) {
+        // On the primary, results are kept in the query cache, which is invalidated whenever a member is stored
+        TypedQuery<MemberSummary> query;
+        if (after == null) {
+            query = reader().createNamedQuery(Member.FIND_FIRST_PAGE, MemberSummary.class);
+        } else {
+            // (name, id) > (:name, :id), the id breaks ties between members sharing a name
+            query = reader().createNamedQuery(Member.FIND_PAGE_AFTER, MemberSummary.class)
+                .setParameter(Member_.NAME, after.getName())
+                .setParameter(Member_.ID, after.getId());
+        }
+        return query.setMaxResults(limit).getResultList();
+    }
+
+    /**
+     * Returns the page of members ordered by name that ends right before the given cursor, for paging backwards with the same
+     * keyset pagination as {@link #findPageOrderedByName(MemberCursor, int)}.
+     *
+     * @param before The cursor of the first member of the following page
+     * @param limit The maximum number of members to return
+     * @return Read-only copies of the members of the page, ordered by name and id
+     */
+    public List<MemberSummary> findPageBeforeOrderedByName(MemberCursor before, int limit) {
+        // The index is walked backwards from the cursor, so the page comes in reverse order
+        List<MemberSummary> page = new ArrayList<>(reader().createNamedQuery(Member.FIND_PAGE_BEFORE, MemberSummary.class)
+            .setParameter(Member_.NAME, before.getName())
+            .setParameter(Member_.ID, before.getId())
+            .setMaxResults(limit)
+            .getResultList());
+        Collections.reverse(page);
+        return page;
+    }
+
+    /**
+     * @return The number of members, counted on the replica unless the primary is required
+     */
+    public long count() {
+        return reader().createNamedQuery(Member.COUNT_ALL, Long.class).getSingleResult();
+    }
+
+    /**
+     * Returns the members with an id greater than the given one, in id order. The page is a range scan of the primary key,
+     * whatever the given id.
+     *
+     * @param after The id of the last member already seen
+     * @param limit The maximum number of members to return
+     * @return Read-only copies of the members, ordered by id
+     */
+    public List<MemberSummary> findPageAfterId(long after, int limit) {
+        return em.createNamedQuery(Member.FIND_AFTER_ID, MemberSummary.class)
+            .setParameter(Member_.ID, after)
+            .setMaxResults(limit)
+            .getResultList();
+    }
+
+    /**
+     * Returns the members registered or changed after the given position, in the order of their last change. The page is a
+     * range scan of the index on the time of the last change and the id.
+     *
+     * @param updatedAt The time of the last change of the last member already seen
+     * @param id The id of the last member already seen, which breaks ties between members changed at the same time
+     * @param limit The maximum number of members to return
+     * @return Read-only copies of the members, ordered by time of last change and id
+     */
+    public List<MemberSummary> findPageChangedAfter(Instant updatedAt, long id, int limit) {
+        return em.createNamedQuery(Member.FIND_CHANGED_AFTER, MemberSummary.class)
+            .setParameter(Member_.UPDATED_AT, updatedAt)
+            .setParameter(Member_.ID, id)
+            .setMaxResults(limit)
+            .getResultList();
+    }
+
+    /**
+     * Finds the members whose name or email starts with the given prefix, ignoring case. The prefix is matched against the
+     * indexed lower case copies of the name and email, in one query per key so that each is a limited range scan of its
+     * index. Both return at most <code>limit</code> members ordered by lower case name, which are merged, without the
+     * members matching on both, so the first members by name are returned whichever of the two they match on.
+     *
+     * @param prefix The prefix to look for
+     * @param limit The maximum number of members to return
+     * @return Read-only copies of the matching members, ordered by lower case name and id
+     */
+    public List<MemberSummary> searchByPrefix(String prefix, int limit) {
+        String pattern = escapeLike(prefix.toLowerCase(Locale.ROOT)) + "%";
+        EntityManager reader = reader();
+        List<MemberSummary> byName = reader.createNamedQuery(Member.FIND_BY_NAME_PREFIX, MemberSummary.class)
+            .setParameter(Member_.NAME_KEY, pattern)
+            .setMaxResults(limit)
+            .getResultList();
+        List<MemberSummary> byEmail = reader.createNamedQuery(Member.FIND_BY_EMAIL_PREFIX, MemberSummary.class)
+            .setParameter(Member_.EMAIL_KEY, pattern)
+            .setMaxResults(limit)
+            .getResultList();
+        if (byEmail.isEmpty()) {
+            return byName;
+        }
+        Set<Long> ids = new HashSet<>();
+        List<MemberSummary> members = new ArrayList<>(byName.size() + byEmail.size());
+        for (MemberSummary member : byName) {
+            ids.add(member.getId());
+            members.add(member);
+        }
+        for (MemberSummary member : byEmail) {
+            if (ids.add(member.getId())) {
+                members.add(member);
+            }
+        }
+        members.sort(BY_NAME_KEY);
+        return members.size() > limit ? new ArrayList<>(members.subList(0, limit)) : members;
+    }
+
+    // The persistence context the queries of the current request read from
+    private EntityManager reader() {
+        return readRouting.isPrimaryRequired() ? em : replica;
+    }
+
+    // Makes the wildcards of a LIKE pattern match literally, using the escape character declared by the queries
+    private static String escapeLike(String value) {
+        return value.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_");
+    }
+
+    /**
+     * Passes a read-only copy of every member, ordered by name, to the given action without loading the whole table in memory.
+     * Rows are read from a database cursor straight into {@link MemberSummary} instances, none of which is kept by the
+     * persistence context, so heap use stays flat whatever the table size.
+     * <p>
+     * The cursor is only open while a transaction is active, so the whole iteration runs in one.
+     * </p>
+     *
+     * @param action The action to apply to each member, in order
+     */
+    @Transactional
+    public void forEachOrderedByName(Consumer<MemberSummary> action) {
+        try (Stream<MemberSummary> members = em.createNamedQuery(Member.FIND_SUMMARIES_ORDERED_BY_NAME, MemberSummary.class)
+            .setHint("org.hibernate.fetchSize", STREAM_FETCH_SIZE)
+            .getResultStream()) {
+            members.forEachOrdered(action);
+        }
+    }
+
+    /**
+     * Passes a read-only copy of every member, in id order, to the given action. It is meant for bulk exports, which may take
+     * longer than a transaction is allowed to: rather than a cursor held open in a transaction, members are read in pages of
+     * a keyset query on the primary key, each one a short query of its own, from the replica unless the primary is required.
+     * Only one page is held in memory at a time. The pages are not a snapshot: members registered or deleted during the
+     * iteration may or may not be seen.
+     *
+     * @param action The action to apply to each member, in order
+     */
+    public void forEachOrderedById(Consumer<MemberSummary> action) {
+        long after = Long.MIN_VALUE;
+        List<MemberSummary> page;
+        do {
+            page = reader().createNamedQuery(Member.FIND_AFTER_ID, MemberSummary.class)
+                .setParameter(Member_.ID, after)
+                .setMaxResults(EXPORT_PAGE_SIZE)
+                .getResultList();
+            for (MemberSummary member : page) {
+                action.accept(member);
+                after = member.getId();
+            }
+        } while (page.size() == EXPORT_PAGE_SIZE);
+    }
+
+    /**
+     * Passes the email of every member, in no particular order, to the given action. The emails are read from a database
+     * cursor on the primary, so that none registered before the call is missed.
+     *
+     * @param action The action to apply to each email
+     */
+    @Transactional
+    public void forEachEmail(Consumer<String> action) {
+        try (Stream<String> emails = em.createNamedQuery(Member.FIND_ALL_EMAILS, String.class)
+            .setHint("org.hibernate.fetchSize", STREAM_FETCH_SIZE)
+            .getResultStream()) {
+            emails.forEach(action);
+        }
     }
 }
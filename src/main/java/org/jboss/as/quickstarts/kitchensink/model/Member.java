@@ -17,13 +17,24 @@
 package org.jboss.as.quickstarts.kitchensink.model;
 
 import java.io.Serializable;
+import java.time.Instant;
+import java.util.Locale;
 
+import jakarta.persistence.Cacheable;
 import jakarta.persistence.Column;
 import jakarta.persistence.Entity;
 import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.NamedQuery;
+import jakarta.persistence.PrePersist;
+import jakarta.persistence.PreUpdate;
+import jakarta.persistence.QueryHint;
+import jakarta.persistence.SequenceGenerator;
 import jakarta.persistence.Table;
 import jakarta.persistence.UniqueConstraint;
+import jakarta.persistence.Version;
 import jakarta.validation.constraints.Digits;
 import jakarta.validation.constraints.NotNull;
 import jakarta.validation.constraints.Pattern;
@@ -33,14 +44,101 @@ import jakarta.xml.bind.annotation.XmlRootElement;
 import jakarta.validation.constraints.Email;
 import jakarta.validation.constraints.NotEmpty;
 
+import org.hibernate.annotations.NaturalId;
+import org.hibernate.annotations.NaturalIdCache;
+
+// Members are rarely modified once registered, so they are kept in the second-level cache, and the cache also
+// resolves email lookups through the natural id
 @SuppressWarnings("serial")
 @Entity
+@Cacheable
+@NaturalIdCache
 @XmlRootElement
-@Table(uniqueConstraints = @UniqueConstraint(columnNames = "email"))
+@Table(uniqueConstraints = @UniqueConstraint(columnNames = "email"), indexes = {
+    @Index(name = "member_name_idx", columnList = "name, id"),
+    @Index(name = "member_name_key_idx", columnList = "name_key"),
+    @Index(name = "member_email_key_idx", columnList = "email_key"),
+    @Index(name = "member_updated_at_idx", columnList = "updated_at, id") })
+// Named queries are parsed and validated once when the persistence unit starts, and their SQL is kept in the query plan cache.
+// The list queries select into MemberSummary, and run read-only without flushing the persistence context first.
+@NamedQuery(name = Member.FIND_ALL_ORDERED_BY_NAME, query = "select m from Member m order by m.name, m.id")
+@NamedQuery(name = Member.FIND_LATEST, query = "select m from Member m order by m.id desc",
+    hints = @QueryHint(name = "org.hibernate.readOnly", value = "true"))
+@NamedQuery(name = Member.FIND_SUMMARIES_ORDERED_BY_NAME, query = "select " + Member.SUMMARY + " from Member m"
+    + " order by m.name, m.id",
+    hints = { @QueryHint(name = "org.hibernate.readOnly", value = "true"),
+        @QueryHint(name = "org.hibernate.flushMode", value = "MANUAL") })
+@NamedQuery(name = Member.FIND_FIRST_PAGE, query = "select " + Member.SUMMARY + " from Member m order by m.name, m.id",
+    hints = { @QueryHint(name = "org.hibernate.readOnly", value = "true"),
+        @QueryHint(name = "org.hibernate.flushMode", value = "MANUAL"),
+        @QueryHint(name = "org.hibernate.cacheable", value = "true") })
+@NamedQuery(name = Member.FIND_PAGE_AFTER, query = "select " + Member.SUMMARY + " from Member m"
+    + " where m.name > :name or (m.name = :name and m.id > :id) order by m.name, m.id",
+    hints = { @QueryHint(name = "org.hibernate.readOnly", value = "true"),
+        @QueryHint(name = "org.hibernate.flushMode", value = "MANUAL"),
+        @QueryHint(name = "org.hibernate.cacheable", value = "true") })
+@NamedQuery(name = Member.FIND_PAGE_BEFORE, query = "select " + Member.SUMMARY + " from Member m"
+    + " where m.name < :name or (m.name = :name and m.id < :id) order by m.name desc, m.id desc",
+    hints = { @QueryHint(name = "org.hibernate.readOnly", value = "true"),
+        @QueryHint(name = "org.hibernate.flushMode", value = "MANUAL"),
+        @QueryHint(name = "org.hibernate.cacheable", value = "true") })
+@NamedQuery(name = Member.COUNT_ALL, query = "select count(m) from Member m",
+    hints = @QueryHint(name = "org.hibernate.flushMode", value = "MANUAL"))
+@NamedQuery(name = Member.FIND_AFTER_ID, query = "select " + Member.SUMMARY + " from Member m where m.id > :id order by m.id",
+    hints = { @QueryHint(name = "org.hibernate.readOnly", value = "true"),
+        @QueryHint(name = "org.hibernate.flushMode", value = "MANUAL") })
+// Ids are allocated in blocks, so they do not follow the commit order across servers, the time of the last change mostly does
+@NamedQuery(name = Member.FIND_CHANGED_AFTER, query = "select " + Member.SUMMARY + " from Member m"
+    + " where m.updatedAt > :updatedAt or (m.updatedAt = :updatedAt and m.id > :id) order by m.updatedAt, m.id",
+    hints = { @QueryHint(name = "org.hibernate.readOnly", value = "true"),
+        @QueryHint(name = "org.hibernate.flushMode", value = "MANUAL") })
+@NamedQuery(name = Member.FIND_EXISTING_EMAILS, query = "select m.email from Member m where m.email in :email")
+@NamedQuery(name = Member.FIND_ALL_EMAILS, query = "select m.email from Member m",
+    hints = { @QueryHint(name = "org.hibernate.readOnly", value = "true"),
+        @QueryHint(name = "org.hibernate.flushMode", value = "MANUAL") })
+// One query per indexed key, as a condition on both keys would not be answered by a range scan of either index
+@NamedQuery(name = Member.FIND_BY_NAME_PREFIX, query = "select " + Member.SUMMARY + " from Member m"
+    + " where m.nameKey like :nameKey escape '\\' order by m.nameKey, m.id",
+    hints = { @QueryHint(name = "org.hibernate.readOnly", value = "true"),
+        @QueryHint(name = "org.hibernate.flushMode", value = "MANUAL") })
+@NamedQuery(name = Member.FIND_BY_EMAIL_PREFIX, query = "select " + Member.SUMMARY + " from Member m"
+    + " where m.emailKey like :emailKey escape '\\' order by m.nameKey, m.id",
+    hints = { @QueryHint(name = "org.hibernate.readOnly", value = "true"),
+        @QueryHint(name = "org.hibernate.flushMode", value = "MANUAL") })
 public class Member implements Serializable {
 
+    public static final String FIND_ALL_ORDERED_BY_NAME = "Member.findAllOrderedByName";
+
+    public static final String FIND_LATEST = "Member.findLatest";
+
+    public static final String FIND_SUMMARIES_ORDERED_BY_NAME = "Member.findSummariesOrderedByName";
+
+    public static final String FIND_FIRST_PAGE = "Member.findFirstPage";
+
+    public static final String FIND_PAGE_AFTER = "Member.findPageAfter";
+
+    public static final String FIND_PAGE_BEFORE = "Member.findPageBefore";
+
+    public static final String COUNT_ALL = "Member.countAll";
+
+    public static final String FIND_AFTER_ID = "Member.findAfterId";
+
+    public static final String FIND_CHANGED_AFTER = "Member.findChangedAfter";
+
+    public static final String FIND_EXISTING_EMAILS = "Member.findExistingEmails";
+
+    public static final String FIND_ALL_EMAILS = "Member.findAllEmails";
+
+    public static final String FIND_BY_NAME_PREFIX = "Member.findByNamePrefix";
+
+    public static final String FIND_BY_EMAIL_PREFIX = "Member.findByEmailPrefix";
+
+    static final String SUMMARY = "new org.jboss.as.quickstarts.kitchensink.model.MemberSummary(m.id, m.name, m.email, m.phoneNumber, m.version, m.updatedAt)";
+
+    // A pooled sequence hands out ids in blocks, so inserts need no round trip per id and can be batched
     @Id
-    @GeneratedValue
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "member_seq")
+    @SequenceGenerator(name = "member_seq", sequenceName = "member_seq", allocationSize = 50)
     private Long id;
 
     @NotNull
@@ -48,6 +146,8 @@ public class Member implements Serializable {
     @Pattern(regexp = "[^0-9]*", message = "Must not contain numbers")
     private String name;
 
+    // Mutable, as members may change their email, the natural id cache is updated accordingly
+    @NaturalId(mutable = true)
     @NotNull
     @NotEmpty
     @Email
@@ -59,6 +159,28 @@ public class Member implements Serializable {
     @Column(name = "phone_number")
     private String phoneNumber;
 
+    // Lower case copies of the name and email, indexed for case insensitive prefix searches
+    @Column(name = "name_key")
+    private String nameKey;
+
+    @Column(name = "email_key")
+    private String emailKey;
+
+    // Incremented on every update, it identifies the state of the member for conditional requests
+    @Version
+    private Long version;
+
+    @Column(name = "updated_at")
+    private Instant updatedAt;
+
+    @PrePersist
+    @PreUpdate
+    void updateDerivedColumns() {
+        nameKey = name == null ? null : name.toLowerCase(Locale.ROOT);
+        emailKey = email == null ? null : email.toLowerCase(Locale.ROOT);
+        updatedAt = Instant.now();
+    }
+
     public Long getId() {
         return id;
     }
@@ -90,4 +212,12 @@ public class Member implements Serializable {
     public void setPhoneNumber(String phoneNumber) {
         this.phoneNumber = phoneNumber;
     }
+
+    public Long getVersion() {
+        return version;
+    }
+
+    public Instant getUpdatedAt() {
+        return updatedAt;
+    }
 }
@@ -0,0 +1,73 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2015, Red Hat, Inc. and/or its affiliates, and individual
+ * contributors by the @authors tag. See the copyright.txt in the
+ * distribution for a full listing of individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.as.quickstarts.kitchensink.model;
+
+import java.io.Serializable;
+
+/**
+ * Event describing a change to a registered member: an update, or its deletion. Registrations are notified with the
+ * {@link Member} itself.
+ */
+@SuppressWarnings("serial")
+public final class MemberChange implements Serializable {
+
+    public enum Type {
+        UPDATED, DELETED
+    }
+
+    private final Type type;
+
+    private final MemberSummary member;
+
+    private final String previousEmail;
+
+    private MemberChange(Type type, MemberSummary member, String previousEmail) {
+        this.type = type;
+        this.member = member;
+        this.previousEmail = previousEmail;
+    }
+
+    /**
+     * @param member The member once updated, with its new version
+     * @param previousEmail The email of the member before the update
+     */
+    public static MemberChange updated(Member member, String previousEmail) {
+        return new MemberChange(Type.UPDATED, MemberSummary.of(member), previousEmail);
+    }
+
+    /**
+     * @param member The member as it was when deleted
+     */
+    public static MemberChange deleted(Member member) {
+        return new MemberChange(Type.DELETED, MemberSummary.of(member), member.getEmail());
+    }
+
+    public Type getType() {
+        return type;
+    }
+
+    public MemberSummary getMember() {
+        return member;
+    }
+
+    /**
+     * @return The email of the member before the change, the same as its current one unless the update changed it
+     */
+    public String getPreviousEmail() {
+        return previousEmail;
+    }
+}
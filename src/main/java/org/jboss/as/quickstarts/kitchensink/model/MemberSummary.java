@@ -0,0 +1,84 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2015, Red Hat, Inc. and/or its affiliates, and individual
+ * contributors by the @authors tag. See the copyright.txt in the
+ * distribution for a full listing of individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.as.quickstarts.kitchensink.model;
+
+import java.io.Serializable;
+import java.time.Instant;
+
+import jakarta.json.bind.annotation.JsonbTransient;
+
+/**
+ * Immutable, read-only copy of the fields of a {@link Member}. Queries select straight into it, so listing members creates
+ * no managed entities and leaves nothing for the persistence context to track.
+ */
+@SuppressWarnings("serial")
+public final class MemberSummary implements Serializable {
+
+    private final Long id;
+
+    private final String name;
+
+    private final String email;
+
+    private final String phoneNumber;
+
+    private final Long version;
+
+    private final Instant updatedAt;
+
+    // Used by the constructor expressions of the projection queries declared on Member
+    public MemberSummary(Long id, String name, String email, String phoneNumber, Long version, Instant updatedAt) {
+        this.id = id;
+        this.name = name;
+        this.email = email;
+        this.phoneNumber = phoneNumber;
+        this.version = version;
+        this.updatedAt = updatedAt;
+    }
+
+    public static MemberSummary of(Member member) {
+        return new MemberSummary(member.getId(), member.getName(), member.getEmail(), member.getPhoneNumber(),
+            member.getVersion(), member.getUpdatedAt());
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public String getEmail() {
+        return email;
+    }
+
+    public String getPhoneNumber() {
+        return phoneNumber;
+    }
+
+    // The version and modification time are sent as the ETag and Last-Modified headers, not in the body
+    @JsonbTransient
+    public Long getVersion() {
+        return version;
+    }
+
+    @JsonbTransient
+    public Instant getUpdatedAt() {
+        return updatedAt;
+    }
+}
@@ -0,0 +1,82 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2015, Red Hat, Inc. and/or its affiliates, and individual
+ * contributors by the @authors tag. See the copyright.txt in the
+ * distribution for a full listing of individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.as.quickstarts.kitchensink.rest;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import jakarta.enterprise.context.RequestScoped;
+import jakarta.inject.Inject;
+import jakarta.persistence.EntityManagerFactory;
+import jakarta.ws.rs.GET;
+import jakarta.ws.rs.Path;
+import jakarta.ws.rs.Produces;
+import jakarta.ws.rs.core.MediaType;
+
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.CacheRegionStatistics;
+import org.hibernate.stat.NaturalIdStatistics;
+import org.hibernate.stat.Statistics;
+import org.jboss.as.quickstarts.kitchensink.model.Member;
+
+/**
+ * Exposes the hit, miss and put counts of the second-level cache regions, of the natural id cache used for member lookups by
+ * email, and of the query plan cache.
+ */
+@Path("/cache")
+@RequestScoped
+public class CacheStatisticsRESTService {
+
+    @Inject
+    private EntityManagerFactory emf;
+
+    @GET
+    @Produces(MediaType.APPLICATION_JSON)
+    public Map<String, Object> getStatistics() {
+        Statistics statistics = emf.unwrap(SessionFactory.class).getStatistics();
+
+        Map<String, Object> regions = new LinkedHashMap<>();
+        for (String regionName : statistics.getSecondLevelCacheRegionNames()) {
+            CacheRegionStatistics region = statistics.getCacheRegionStatistics(regionName);
+            if (region != null) {
+                Map<String, Object> regionStats = new LinkedHashMap<>();
+                regionStats.put("hits", region.getHitCount());
+                regionStats.put("misses", region.getMissCount());
+                regionStats.put("puts", region.getPutCount());
+                regionStats.put("elementsInMemory", region.getElementCountInMemory());
+                regions.put(regionName, regionStats);
+            }
+        }
+
+        NaturalIdStatistics naturalId = statistics.getNaturalIdStatistics(Member.class.getName());
+        Map<String, Object> naturalIdStats = new LinkedHashMap<>();
+        naturalIdStats.put("hits", naturalId.getCacheHitCount());
+        naturalIdStats.put("misses", naturalId.getCacheMissCount());
+        naturalIdStats.put("puts", naturalId.getCachePutCount());
+        naturalIdStats.put("queries", naturalId.getExecutionCount());
+
+        Map<String, Object> queryPlanStats = new LinkedHashMap<>();
+        queryPlanStats.put("hits", statistics.getQueryPlanCacheHitCount());
+        queryPlanStats.put("misses", statistics.getQueryPlanCacheMissCount());
+
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("regions", regions);
+        result.put("memberNaturalId", naturalIdStats);
+        result.put("queryPlan", queryPlanStats);
+        return result;
+    }
+}
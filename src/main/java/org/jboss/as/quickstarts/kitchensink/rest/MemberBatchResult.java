@@ -0,0 +1,69 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2015, Red Hat, Inc. and/or its affiliates, and individual
+ * contributors by the @authors tag. See the copyright.txt in the
+ * distribution for a full listing of individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.as.quickstarts.kitchensink.rest;
+
+import java.util.Map;
+
+/**
+ * Outcome of one member of a bulk registration. The status mirrors the response a single registration would have received:
+ * 200 with the id of the new member, 400 with a map of fields and related errors, or 409 when the email is taken.
+ */
+public class MemberBatchResult {
+
+    private final int index;
+
+    private final int status;
+
+    private final Long id;
+
+    private final Map<String, String> errors;
+
+    private MemberBatchResult(int index, int status, Long id, Map<String, String> errors) {
+        this.index = index;
+        this.status = status;
+        this.id = id;
+        this.errors = errors;
+    }
+
+    public static MemberBatchResult registered(int index, Long id) {
+        return new MemberBatchResult(index, 200, id, null);
+    }
+
+    public static MemberBatchResult invalid(int index, Map<String, String> errors) {
+        return new MemberBatchResult(index, 400, null, errors);
+    }
+
+    public static MemberBatchResult emailTaken(int index) {
+        return new MemberBatchResult(index, 409, null, Map.of("email", "Email taken"));
+    }
+
+    public int getIndex() {
+        return index;
+    }
+
+    public int getStatus() {
+        return status;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public Map<String, String> getErrors() {
+        return errors;
+    }
+}
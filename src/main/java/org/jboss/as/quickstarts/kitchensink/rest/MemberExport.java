@@ -0,0 +1,229 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2015, Red Hat, Inc. and/or its affiliates, and individual
+ * contributors by the @authors tag. See the copyright.txt in the
+ * distribution for a full listing of individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.as.quickstarts.kitchensink.rest;
+
+import java.io.BufferedOutputStream;
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.FilterWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.function.Consumer;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPOutputStream;
+
+import jakarta.json.Json;
+import jakarta.json.stream.JsonGenerator;
+import jakarta.json.stream.JsonGeneratorFactory;
+
+import org.jboss.as.quickstarts.kitchensink.model.MemberSummary;
+
+/**
+ * Writes members to a bulk export, one at a time, in newline delimited JSON or in CBOR (RFC 8949). Both formats carry the
+ * id, name, email and phone number of each member.
+ * <p>
+ * The CBOR export is an indefinite length array of maps, written by hand: the keys are encoded once, and strings and
+ * numbers take their shortest form, and no text has to be escaped.
+ * </p>
+ * <p>
+ * Errors writing to the output are thrown as {@link UncheckedIOException}, as an export is fed by a {@link Consumer}.
+ * </p>
+ */
+public abstract class MemberExport implements Consumer<MemberSummary>, Closeable {
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private static final JsonGeneratorFactory JSON = Json.createGeneratorFactory(Map.of());
+
+    /**
+     * Starts an export in a given format.
+     */
+    @FunctionalInterface
+    public interface Format {
+        MemberExport start(OutputStream output) throws IOException;
+    }
+
+    /**
+     * Starts an export in newline delimited JSON, one member object per line.
+     */
+    public static MemberExport ndjson(OutputStream output) {
+        return new NdjsonExport(output);
+    }
+
+    /**
+     * Starts an export in CBOR, an array of member maps.
+     */
+    public static MemberExport cbor(OutputStream output) throws IOException {
+        return new CborExport(output);
+    }
+
+    /**
+     * Compresses an output with gzip. The fastest compression level is used, as an export should be bounded by the network
+     * rather than by the compression.
+     */
+    public static OutputStream gzip(OutputStream output) throws IOException {
+        return new GZIPOutputStream(output, BUFFER_SIZE) {
+            {
+                def.setLevel(Deflater.BEST_SPEED);
+            }
+        };
+    }
+
+    @Override
+    public void accept(MemberSummary member) {
+        try {
+            write(member);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    protected abstract void write(MemberSummary member) throws IOException;
+
+    private static class NdjsonExport extends MemberExport {
+
+        private final Writer writer;
+
+        // Shields the writer from the generators, each closing it at the end of its line
+        private final Writer line;
+
+        NdjsonExport(OutputStream output) {
+            writer = new BufferedWriter(new OutputStreamWriter(output, StandardCharsets.UTF_8), BUFFER_SIZE);
+            line = new FilterWriter(writer) {
+                @Override
+                public void close() {
+                }
+            };
+        }
+
+        @Override
+        protected void write(MemberSummary member) throws IOException {
+            // A generator only writes a single JSON text, so each line gets its own
+            try (JsonGenerator json = JSON.createGenerator(line)) {
+                json.writeStartObject()
+                    .write("id", member.getId())
+                    .write("name", member.getName())
+                    .write("email", member.getEmail())
+                    .write("phoneNumber", member.getPhoneNumber())
+                    .writeEnd();
+            }
+            writer.write('\n');
+        }
+
+        @Override
+        public void close() throws IOException {
+            writer.close();
+        }
+    }
+
+    private static class CborExport extends MemberExport {
+
+        private static final int UNSIGNED = 0;
+
+        private static final int TEXT = 3 << 5;
+
+        private static final int MAP = 5 << 5;
+
+        private static final int START_ARRAY = 0x9f;
+
+        private static final int BREAK = 0xff;
+
+        private static final int NULL = 0xf6;
+
+        private static final byte[] ID = key("id");
+
+        private static final byte[] NAME = key("name");
+
+        private static final byte[] EMAIL = key("email");
+
+        private static final byte[] PHONE_NUMBER = key("phoneNumber");
+
+        private final OutputStream output;
+
+        CborExport(OutputStream output) throws IOException {
+            this.output = new BufferedOutputStream(output, BUFFER_SIZE);
+            this.output.write(START_ARRAY);
+        }
+
+        @Override
+        protected void write(MemberSummary member) throws IOException {
+            head(MAP, 4);
+            output.write(ID);
+            head(UNSIGNED, member.getId());
+            output.write(NAME);
+            text(member.getName());
+            output.write(EMAIL);
+            text(member.getEmail());
+            output.write(PHONE_NUMBER);
+            text(member.getPhoneNumber());
+        }
+
+        @Override
+        public void close() throws IOException {
+            output.write(BREAK);
+            output.close();
+        }
+
+        private void text(String value) throws IOException {
+            if (value == null) {
+                output.write(NULL);
+                return;
+            }
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            head(TEXT, bytes.length);
+            output.write(bytes);
+        }
+
+        // Writes the major type and argument of a data item, the argument taking the fewest bytes that hold it
+        private void head(int majorType, long argument) throws IOException {
+            if (argument < 24) {
+                output.write(majorType | (int) argument);
+            } else if (argument < 0x100) {
+                output.write(majorType | 24);
+                output.write((int) argument);
+            } else if (argument < 0x10000) {
+                output.write(majorType | 25);
+                bytes(argument, 2);
+            } else if (argument < 0x100000000L) {
+                output.write(majorType | 26);
+                bytes(argument, 4);
+            } else {
+                output.write(majorType | 27);
+                bytes(argument, 8);
+            }
+        }
+
+        private void bytes(long value, int count) throws IOException {
+            for (int shift = (count - 1) * 8; shift >= 0; shift -= 8) {
+                output.write((int) (value >>> shift));
+            }
+        }
+
+        private static byte[] key(String name) {
+            byte[] bytes = name.getBytes(StandardCharsets.UTF_8);
+            byte[] key = new byte[bytes.length + 1];
+            key[0] = (byte) (TEXT | bytes.length);
+            System.arraycopy(bytes, 0, key, 1, bytes.length);
+            return key;
+        }
+    }
+}
@@ -0,0 +1,394 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2015, Red Hat, Inc. and/or its affiliates, and individual
+ * contributors by the @authors tag. See the copyright.txt in the
+ * distribution for a full listing of individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.as.quickstarts.kitchensink.rest;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.logging.Logger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.annotation.Resource;
+import jakarta.enterprise.concurrent.ManagedExecutorService;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.event.ObservesAsync;
+import jakarta.inject.Inject;
+import jakarta.ws.rs.core.MediaType;
+import jakarta.ws.rs.sse.OutboundSseEvent;
+import jakarta.ws.rs.sse.Sse;
+import jakarta.ws.rs.sse.SseEventSink;
+
+import org.jboss.as.quickstarts.kitchensink.data.MemberRepository;
+import org.jboss.as.quickstarts.kitchensink.model.Member;
+import org.jboss.as.quickstarts.kitchensink.model.MemberChange;
+import org.jboss.as.quickstarts.kitchensink.model.MemberSummary;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * Pushes the newly registered and updated members to the subscribers of the member stream, as server-sent events whose id is
+ * the time of the last change of the member, in milliseconds since the epoch, and the member id, separated by a dash.
+ * Deleted members are not streamed, as a replay could not read them back.
+ * <p>
+ * Each subscriber has its own bounded buffer, filled by the asynchronous member registered and changed events of {@link
+ * org.jboss.as.quickstarts.kitchensink.service.MemberEventDispatcher MemberEventDispatcher} and drained by a task on
+ * the managed executor. The task sends one event at a time, and is only scheduled again once the client has taken it, so
+ * no thread waits for a client and a slow client only ever delays itself. A subscriber whose buffer is full, or which
+ * does not take an event within the send timeout, is disconnected; it can reconnect with the <code>Last-Event-ID</code> of
+ * the last event it got. The members registered or updated since are then replayed from the database, in pages of a
+ * keyset query on the time of the last change and the id, so a reconnecting client gets the same members as one that
+ * stayed connected. Members are not stored in the order of their ids, which are allocated in blocks, nor exactly in the
+ * order of their timestamps, which are taken before the commit: the replay therefore starts a grace period before the
+ * last event, and a client may get a member it already got again. Live events are not buffered while the replay catches
+ * up, as the replay reads them from the database; once it has, live events are buffered again and the last grace period
+ * is read once more, so no member committed in the meantime is
+ * missed. Members sent twice within that window are skipped.
+ * </p>
+ * <p>
+ * The buffer size, the send timeout in seconds, the grace period in seconds and the maximum number of subscribers are read
+ * from the <code>kitchensink.stream.buffer</code>, <code>kitchensink.stream.timeout</code>,
+ * <code>kitchensink.stream.grace</code> and <code>kitchensink.stream.subscribers</code> system properties.
+ * </p>
+ */
+@ApplicationScoped
+public class MemberFeed {
+
+    private static final int REPLAY_PAGE_SIZE = 500;
+
+    private static final Pattern EVENT_ID = Pattern.compile("(\\d+)-(\\d+)");
+
+    private final int bufferSize = Integer.getInteger("kitchensink.stream.buffer", 256);
+
+    private final long sendTimeout = Integer.getInteger("kitchensink.stream.timeout", 10);
+
+    private final Duration grace = Duration.ofSeconds(Integer.getInteger("kitchensink.stream.grace", 5));
+
+    private final int maxSubscribers = Integer.getInteger("kitchensink.stream.subscribers", 1000);
+
+    @Inject
+    private Logger log;
+
+    @Inject
+    private MemberRepository repository;
+
+    @Inject
+    private MeterRegistry registry;
+
+    @Resource
+    private ManagedExecutorService executor;
+
+    private final Set<Subscriber> subscribers = ConcurrentHashMap.newKeySet();
+
+    @PostConstruct
+    public void registerMetrics() {
+        Gauge.builder("kitchensink.stream.subscribers", subscribers, Set::size).register(registry);
+    }
+
+    @PreDestroy
+    public void closeAll() {
+        subscribers.forEach(subscriber -> subscriber.close(null));
+    }
+
+    /**
+     * Subscribes a client to the registered members.
+     *
+     * @param sink The event sink of the client
+     * @param sse The factory of the events
+     * @param lastEventId The id of the last event the client got, after which members are replayed first, or null. The bare
+     *        member ids sent by previous versions are accepted too.
+     * @return False if the maximum number of subscribers is reached, in which case the sink is left open
+     * @throws IllegalArgumentException If the last event id is not one of ours
+     */
+    public boolean subscribe(SseEventSink sink, Sse sse, String lastEventId) {
+        Instant replayFrom = null;
+        Long replayAfterId = null;
+        if (lastEventId != null) {
+            Matcher matcher = EVENT_ID.matcher(lastEventId);
+            try {
+                if (matcher.matches()) {
+                    replayFrom = Instant.ofEpochMilli(Long.parseLong(matcher.group(1))).minus(grace);
+                } else {
+                    replayAfterId = Long.valueOf(lastEventId);
+                }
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("Invalid event id: " + lastEventId, e);
+            }
+        }
+        if (subscribers.size() >= maxSubscribers) {
+            return false;
+        }
+        Subscriber subscriber = new Subscriber(sink, sse, replayFrom, replayAfterId);
+        subscribers.add(subscriber);
+        if (subscriber.replaying) {
+            subscriber.schedule();
+        }
+        return true;
+    }
+
+    public void onMemberRegistered(@ObservesAsync final Member member) {
+        publish(MemberSummary.of(member));
+    }
+
+    public void onMemberChanged(@ObservesAsync final MemberChange change) {
+        // A replay cannot read deleted members back, so they are not streamed live either
+        if (change.getType() == MemberChange.Type.UPDATED) {
+            publish(change.getMember());
+        }
+    }
+
+    private void publish(MemberSummary member) {
+        for (Subscriber subscriber : subscribers) {
+            subscriber.offer(member);
+        }
+    }
+
+    private enum ReplayPhase {
+        // Reading the members changed since the last event of the client
+        CATCH_UP,
+        // Reading the last grace period once more, while live events are buffered again
+        REREAD,
+        // Only sending live events
+        DONE
+    }
+
+    private final class Subscriber implements Runnable {
+
+        private final SseEventSink sink;
+
+        private final Sse sse;
+
+        private final BlockingQueue<MemberSummary> buffer = new ArrayBlockingQueue<>(bufferSize);
+
+        // Set while a drain task runs or waits for the client to take an event
+        private final AtomicBoolean scheduled = new AtomicBoolean();
+
+        // Live events are dropped until the replay has caught up with the database
+        private volatile boolean replaying;
+
+        // Only accessed by the drain task, which never runs concurrently with itself
+        private ReplayPhase phase;
+
+        private Long replayAfterId;
+
+        // The time of the last change and the id of the last member read by the replay
+        private Instant replayAt;
+
+        private long replayId = Long.MIN_VALUE;
+
+        private Iterator<MemberSummary> page;
+
+        private int pageSize;
+
+        // Members sent within the last grace period, oldest change first, from the start of the replay until a grace period
+        // after it
+        private Map<Long, MemberSummary> sent;
+
+        private Instant newestSent = Instant.EPOCH;
+
+        private long dedupeUntil;
+
+        Subscriber(SseEventSink sink, Sse sse, Instant replayFrom, Long replayAfterId) {
+            this.sink = sink;
+            this.sse = sse;
+            this.replayAt = replayFrom;
+            this.replayAfterId = replayAfterId;
+            this.replaying = replayFrom != null || replayAfterId != null;
+            this.phase = replaying ? ReplayPhase.CATCH_UP : ReplayPhase.DONE;
+        }
+
+        void offer(MemberSummary member) {
+            if (replaying) {
+                return;
+            }
+            if (buffer.offer(member)) {
+                schedule();
+            } else {
+                close("slow_consumer");
+            }
+        }
+
+        void schedule() {
+            if (scheduled.compareAndSet(false, true)) {
+                executor.execute(this);
+            }
+        }
+
+        // Sends the next event, and runs again on the executor once the client has taken it or the send has timed out
+        @Override
+        public void run() {
+            if (sent != null && phase == ReplayPhase.DONE && System.nanoTime() - dedupeUntil > 0) {
+                sent = null;
+            }
+            MemberSummary member = null;
+            try {
+                if (!sink.isClosed()) {
+                    member = next();
+                }
+            } catch (RuntimeException e) {
+                close("disconnected");
+            }
+            if (member == null) {
+                scheduled.set(false);
+                if (sink.isClosed()) {
+                    subscribers.remove(this);
+                } else if (!buffer.isEmpty()) {
+                    // Events offered while the task was finishing
+                    schedule();
+                }
+                return;
+            }
+            send(member).whenCompleteAsync((ignored, failure) -> {
+                if (failure == null) {
+                    run();
+                    return;
+                }
+                Throwable cause = failure instanceof CompletionException ? failure.getCause() : failure;
+                close(cause instanceof TimeoutException ? "slow_consumer" : "disconnected");
+                scheduled.set(false);
+            }, executor);
+        }
+
+        // The next member to send, from the replay then from the buffer, or null if there is none for now
+        private MemberSummary next() {
+            while (true) {
+                MemberSummary member = phase == ReplayPhase.DONE ? buffer.poll() : nextReplayed();
+                if (member == null) {
+                    if (phase == ReplayPhase.DONE) {
+                        return null;
+                    }
+                    continue;
+                }
+                if (isUnsent(member)) {
+                    return member;
+                }
+            }
+        }
+
+        // The next member read by the replay, or null when the current phase of the replay is over
+        private MemberSummary nextReplayed() {
+            if (page != null && page.hasNext()) {
+                MemberSummary member = page.next();
+                replayAt = updatedAt(member);
+                replayId = member.getId();
+                return member;
+            }
+            if (page == null || pageSize == REPLAY_PAGE_SIZE) {
+                if (sent == null) {
+                    sent = new LinkedHashMap<>();
+                    if (replayAt == null) {
+                        replayAt = findReplayStart(replayAfterId);
+                    }
+                }
+                List<MemberSummary> members = repository.findPageChangedAfter(replayAt, replayId, REPLAY_PAGE_SIZE);
+                pageSize = members.size();
+                page = members.iterator();
+                return null;
+            }
+            page = null;
+            if (phase == ReplayPhase.CATCH_UP) {
+                // Caught up with the database: buffer the live events again and read the last grace period once more, for
+                // the members committed meanwhile with an earlier timestamp
+                replaying = false;
+                phase = ReplayPhase.REREAD;
+                replayAt = replayAt.minus(grace);
+                replayId = Long.MIN_VALUE;
+            } else {
+                phase = ReplayPhase.DONE;
+                dedupeUntil = System.nanoTime() + grace.toNanos();
+            }
+            return null;
+        }
+
+        // The members registered after a member id, sent by previous versions, from the time of its last change
+        private Instant findReplayStart(long afterId) {
+            Instant updatedAt = repository.findSummaryById(afterId)
+                .or(() -> repository.findPageAfterId(afterId, 1).stream().findFirst())
+                .map(MemberSummary::getUpdatedAt)
+                .orElseGet(Instant::now);
+            return updatedAt.minus(grace);
+        }
+
+        // Skips the members the replay already sent, in the same or a newer version, and records the others as sent
+        private boolean isUnsent(MemberSummary member) {
+            if (sent == null) {
+                return true;
+            }
+            MemberSummary previous = sent.get(member.getId());
+            if (previous != null && !isNewer(member, previous)) {
+                return false;
+            }
+            sent.remove(member.getId());
+            sent.put(member.getId(), member);
+            Instant updatedAt = updatedAt(member);
+            if (updatedAt.isAfter(newestSent)) {
+                newestSent = updatedAt;
+            }
+            // Older members are not read again
+            Instant oldest = newestSent.minus(grace);
+            for (Iterator<MemberSummary> it = sent.values().iterator(); it.hasNext() && updatedAt(it.next()).isBefore(oldest);) {
+                it.remove();
+            }
+            return true;
+        }
+
+        private CompletableFuture<?> send(MemberSummary member) {
+            OutboundSseEvent event = sse.newEventBuilder()
+                .id(updatedAt(member).toEpochMilli() + "-" + member.getId())
+                .name("member")
+                .mediaType(MediaType.APPLICATION_JSON_TYPE)
+                .data(MemberSummary.class, member)
+                .build();
+            return sink.send(event).toCompletableFuture().orTimeout(sendTimeout, TimeUnit.SECONDS);
+        }
+
+        void close(String reason) {
+            if (subscribers.remove(this) && reason != null) {
+                log.fine("Closing member stream subscriber: " + reason);
+                registry.counter("kitchensink.stream.disconnected", "reason", reason).increment();
+            }
+            try {
+                sink.close();
+            } catch (RuntimeException e) {
+                log.fine("Could not close member stream: " + e.getMessage());
+            }
+        }
+    }
+
+    private static Instant updatedAt(MemberSummary member) {
+        return member.getUpdatedAt() == null ? Instant.EPOCH : member.getUpdatedAt();
+    }
+
+    private static boolean isNewer(MemberSummary member, MemberSummary other) {
+        return member.getVersion() != null && other.getVersion() != null && member.getVersion() > other.getVersion();
+    }
+}
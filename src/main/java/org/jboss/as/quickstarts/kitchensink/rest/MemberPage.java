@@ -0,0 +1,44 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2015, Red Hat, Inc. and/or its affiliates, and individual
+ * contributors by the @authors tag. See the copyright.txt in the
+ * distribution for a full listing of individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.as.quickstarts.kitchensink.rest;
+
+import java.util.List;
+
+import org.jboss.as.quickstarts.kitchensink.model.MemberSummary;
+
+/**
+ * One page of the members list, as returned by the paginated REST endpoint. The next cursor is null on the last page.
+ */
+public class MemberPage {
+
+    private final List<MemberSummary> members;
+
+    private final String nextCursor;
+
+    public MemberPage(List<MemberSummary> members, String nextCursor) {
+        this.members = members;
+        this.nextCursor = nextCursor;
+    }
+
+    public List<MemberSummary> getMembers() {
+        return members;
+    }
+
+    public String getNextCursor() {
+        return nextCursor;
+    }
+}
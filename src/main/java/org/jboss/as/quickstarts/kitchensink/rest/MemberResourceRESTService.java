@@ -16,33 +16,83 @@
  */
 package org.jboss.as.quickstarts.kitchensink.rest;
 
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.StringReader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Date;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.function.Consumer;
+import java.util.function.Function;
 import java.util.logging.Logger;
 
 import jakarta.enterprise.context.RequestScoped;
 import jakarta.inject.Inject;
-import jakarta.persistence.NoResultException;
+import jakarta.json.Json;
+import jakarta.json.JsonException;
+import jakarta.json.JsonObject;
+import jakarta.json.JsonReader;
+import jakarta.json.JsonString;
+import jakarta.json.JsonValue;
+import jakarta.json.stream.JsonGenerator;
 import jakarta.validation.ConstraintViolation;
 import jakarta.validation.ConstraintViolationException;
-import jakarta.validation.ValidationException;
-import jakarta.validation.Validator;
 import jakarta.ws.rs.Consumes;
+import jakarta.ws.rs.DELETE;
+import jakarta.ws.rs.DefaultValue;
 import jakarta.ws.rs.GET;
+import jakarta.ws.rs.HeaderParam;
+import jakarta.ws.rs.PATCH;
 import jakarta.ws.rs.POST;
+import jakarta.ws.rs.PUT;
 import jakarta.ws.rs.Path;
 import jakarta.ws.rs.PathParam;
 import jakarta.ws.rs.Produces;
+import jakarta.ws.rs.QueryParam;
 import jakarta.ws.rs.WebApplicationException;
+import jakarta.ws.rs.core.CacheControl;
+import jakarta.ws.rs.core.Context;
+import jakarta.ws.rs.core.EntityTag;
+import jakarta.ws.rs.core.HttpHeaders;
 import jakarta.ws.rs.core.MediaType;
+import jakarta.ws.rs.core.Request;
 import jakarta.ws.rs.core.Response;
+import jakarta.ws.rs.core.StreamingOutput;
 
+import org.jboss.as.quickstarts.kitchensink.data.EmailFilter;
+import org.jboss.as.quickstarts.kitchensink.data.MemberCursor;
+import org.jboss.as.quickstarts.kitchensink.data.MemberListView;
 import org.jboss.as.quickstarts.kitchensink.data.MemberRepository;
 import org.jboss.as.quickstarts.kitchensink.model.Member;
+import org.jboss.as.quickstarts.kitchensink.model.MemberSummary;
+import org.jboss.as.quickstarts.kitchensink.service.DuplicateEmailException;
+import org.jboss.as.quickstarts.kitchensink.service.InvalidMemberException;
+import org.jboss.as.quickstarts.kitchensink.service.MemberModification;
 import org.jboss.as.quickstarts.kitchensink.service.MemberRegistration;
+import org.jboss.as.quickstarts.kitchensink.service.MemberValidator;
+import org.jboss.as.quickstarts.kitchensink.service.RegistrationQueue;
+import org.jboss.as.quickstarts.kitchensink.service.StaleMemberException;
+import org.jboss.as.quickstarts.kitchensink.util.RequestExecutor;
+
+import io.micrometer.core.instrument.MeterRegistry;
 
 /**
  * JAX-RS Example
@@ -51,35 +101,410 @@ import org.jboss.as.quickstarts.kitchensink.service.MemberRegistration;
  */
 @Path("/members")
 @RequestScoped
+@RateLimited
 public class MemberResourceRESTService {
 
+    private static final int MAX_PAGE_SIZE = 500;
+
+    private static final int MAX_SEARCH_SIZE = 100;
+
+    // Members read per query when the member list is read from the database
+    private static final int LIST_PAGE_SIZE = 1000;
+
+    // Distinguishes the entity tags of the member list across restarts, as the generation of the view starts over
+    private static final String ETAG_PREFIX = Long.toString(System.currentTimeMillis(), 36) + "-";
+
+    private static final String APPLICATION_NDJSON = "application/x-ndjson";
+
+    private static final String APPLICATION_CBOR = "application/cbor";
+
+    private static final String APPLICATION_MERGE_PATCH_JSON = "application/merge-patch+json";
+
+    private static final int MAX_BATCH_SIZE = 50_000;
+
+    // Members stored per transaction by a bulk registration
+    private static final int BATCH_CHUNK_SIZE = 500;
+
     @Inject
     private Logger log;
 
     @Inject
-    private Validator validator;
+    private MemberValidator memberValidator;
 
     @Inject
     private MemberRepository repository;
 
+    @Inject
+    private MemberListView memberListView;
+
+    @Inject
+    private EmailFilter emailFilter;
+
     @Inject
     MemberRegistration registration;
 
+    @Inject
+    private RegistrationQueue registrationQueue;
+
+    @Inject
+    private MemberModification modification;
+
+    @Inject
+    private MeterRegistry registry;
+
+    @Inject
+    private RequestExecutor requestExecutor;
+
+    /**
+     * Streams all members, ordered by name, as a JSON array. Members are read from the in-memory {@link MemberListView} and
+     * written to the response one by one, so the list is neither queried nor copied.
+     * <p>
+     * The response carries the generation of the view as its entity tag, so a client polling with
+     * <code>If-None-Match</code> gets a 304 response, without any serialization, until a member is registered. Until the view
+     * is loaded, or when it is not used, members are read from the database instead, in pages of a keyset query so that no
+     * transaction is held open for the whole list, and the response has no entity tag.
+     * </p>
+     * <p>
+     * The time taken grows with the number of members rather than with the load, so it does not lower the concurrency limits.
+     * </p>
+     */
+    @GET
+    @Produces(MediaType.APPLICATION_JSON)
+    @RateLimited(latencyBound = false)
+    public Response listAllMembers(@Context Request request) {
+        if (!memberListView.isLoaded()) {
+            StreamingOutput body = output -> {
+                try (JsonGenerator json = Json.createGenerator(output)) {
+                    json.writeStartArray();
+                    List<MemberSummary> page = repository.findPageOrderedByName(null, LIST_PAGE_SIZE);
+                    while (true) {
+                        page.forEach(member -> writeMember(json, member));
+                        if (page.size() < LIST_PAGE_SIZE) {
+                            break;
+                        }
+                        page = repository.findPageOrderedByName(MemberCursor.after(page.get(page.size() - 1)), LIST_PAGE_SIZE);
+                    }
+                    json.writeEnd();
+                }
+            };
+            return Response.ok(body).cacheControl(revalidate()).build();
+        }
+        EntityTag tag = new EntityTag(ETAG_PREFIX + memberListView.getGeneration());
+        Date lastModified = toHttpDate(memberListView.getLastModified());
+        Response.ResponseBuilder notModified = request.evaluatePreconditions(lastModified, tag);
+        if (notModified != null) {
+            return notModified.cacheControl(revalidate()).build();
+        }
+        StreamingOutput body = output -> {
+            try (JsonGenerator json = Json.createGenerator(output)) {
+                json.writeStartArray();
+                memberListView.forEach(member -> writeMember(json, member));
+                json.writeEnd();
+            }
+        };
+        return Response.ok(body).tag(tag).lastModified(lastModified).cacheControl(revalidate()).build();
+    }
+
+    /**
+     * Exports all members, in id order, as newline delimited JSON. Members are read in pages, each in a short query of its own,
+     * and written to the response as they are read, so neither memory use nor the time any transaction is held open depend on
+     * the number of members. The export is compressed with gzip when the
+     * client accepts it.
+     * <p>
+     * JSON remains the default representation of the member list, this one is only returned to clients asking for it.
+     * </p>
+     */
+    @GET
+    @Produces(APPLICATION_NDJSON + ";qs=0.9")
+    @RateLimited(latencyBound = false)
+    public Response exportMembersAsNdjson(@HeaderParam(HttpHeaders.ACCEPT_ENCODING) String acceptEncoding) {
+        return export(MemberExport::ndjson, APPLICATION_NDJSON, acceptEncoding);
+    }
+
+    /**
+     * Exports all members, in id order, as a CBOR array, the most compact of the representations. See
+     * {@link #exportMembersAsNdjson(String)}.
+     */
+    @GET
+    @Produces(APPLICATION_CBOR + ";qs=0.9")
+    @RateLimited(latencyBound = false)
+    public Response exportMembersAsCbor(@HeaderParam(HttpHeaders.ACCEPT_ENCODING) String acceptEncoding) {
+        return export(MemberExport::cbor, APPLICATION_CBOR, acceptEncoding);
+    }
+
+    private Response export(MemberExport.Format format, String type, String acceptEncoding) {
+        boolean gzip = acceptsGzip(acceptEncoding);
+        StreamingOutput body = output -> {
+            // Not closed on failure, so that a truncated export does not end like a complete one
+            MemberExport export = format.start(gzip ? MemberExport.gzip(output) : output);
+            try {
+                repository.forEachOrderedById(export);
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
+            }
+            export.close();
+        };
+        Response.ResponseBuilder response = Response.ok(body, type).header(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+        if (gzip) {
+            response.encoding("gzip");
+        }
+        return response.build();
+    }
+
+    private static boolean acceptsGzip(String acceptEncoding) {
+        if (acceptEncoding == null) {
+            return false;
+        }
+        for (String coding : acceptEncoding.split(",")) {
+            String[] parts = coding.split(";");
+            if (parts[0].strip().equalsIgnoreCase("gzip")) {
+                // A quality of zero refuses the coding
+                return parts.length == 1 || !parts[1].strip().matches("q=0(\\.0*)?");
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Returns one page of members ordered by name. The response carries an opaque cursor to pass back to get the following
+     * page, it is null once the last page is reached.
+     */
     @GET
+    @Path("/page")
     @Produces(MediaType.APPLICATION_JSON)
-    public List<Member> listAllMembers() {
-        return repository.findAllOrderedByName();
+    public CompletionStage<MemberPage> listMembersPage(@QueryParam("cursor") String cursor,
+        @QueryParam("limit") @DefaultValue("50") int limit) {
+        if (limit < 1 || limit > MAX_PAGE_SIZE) {
+            throw new WebApplicationException(Response.Status.BAD_REQUEST);
+        }
+        MemberCursor after;
+        try {
+            after = cursor == null || cursor.isEmpty() ? null : MemberCursor.decode(cursor);
+        } catch (IllegalArgumentException e) {
+            throw new WebApplicationException(Response.Status.BAD_REQUEST);
+        }
+        return requestExecutor.supply(() -> findPage(after, limit));
+    }
+
+    private MemberPage findPage(MemberCursor after, int limit) {
+        // Read one extra row to know whether there is a next page
+        List<MemberSummary> members = repository.findPageOrderedByName(after, limit + 1);
+        String nextCursor = null;
+        if (members.size() > limit) {
+            members = members.subList(0, limit);
+            nextCursor = MemberCursor.after(members.get(limit - 1)).encode();
+        }
+        return new MemberPage(members, nextCursor);
     }
 
+    /**
+     * Finds the members whose name or email starts with the given text, ignoring case, ordered by name ignoring case.
+     */
+    @GET
+    @Path("/search")
+    @Produces(MediaType.APPLICATION_JSON)
+    public CompletionStage<List<MemberSummary>> searchMembers(@QueryParam("q") String query,
+        @QueryParam("limit") @DefaultValue("20") int limit) {
+        if (query == null || query.isBlank() || limit < 1 || limit > MAX_SEARCH_SIZE) {
+            throw new WebApplicationException(Response.Status.BAD_REQUEST);
+        }
+        return requestExecutor.supply(() -> repository.searchByPrefix(query.strip(), limit));
+    }
+
+    /**
+     * Tells whether an email is free to register, for the live validation of the registration form. Most free emails are
+     * answered from the {@link EmailFilter} without querying the database. The answer is only a hint: the email may be taken
+     * by the time the member is registered.
+     */
     @GET
+    @Path("/email-available")
+    @Produces(MediaType.APPLICATION_JSON)
+    public CompletionStage<Map<String, Object>> isEmailAvailable(@QueryParam("email") String email) {
+        if (email == null || email.isBlank()) {
+            throw new WebApplicationException(Response.Status.BAD_REQUEST);
+        }
+        String address = email.strip();
+        if (!emailFilter.mightBeTaken(address)) {
+            return CompletableFuture.completedFuture(availability(address, true));
+        }
+        return requestExecutor.supply(() -> availability(address, !emailFilter.confirmTaken(address)));
+    }
+
+    private static Map<String, Object> availability(String email, boolean available) {
+        return Map.of("email", email, "available", available);
+    }
+
+    /**
+     * Returns a member, tagged with its id and version. Members are looked up in the {@link MemberListView} first, once it is
+     * loaded, so a client revalidating with <code>If-None-Match</code> gets a 304 response without any query.
+     */
+    @GET
+    @Path("/{id:[0-9][0-9]*}")
+    @Produces(MediaType.APPLICATION_JSON)
+    public Response lookupMemberById(@PathParam("id") long id, @Context Request request) {
+        MemberSummary member = memberListView.findById(id)
+            // Registered but not yet added to the view, or the view is not loaded
+            .or(() -> repository.findSummaryById(id))
+            .orElseThrow(() -> new WebApplicationException(Response.Status.NOT_FOUND));
+        EntityTag tag = tagOf(member);
+        Date lastModified = member.getUpdatedAt() == null ? null : toHttpDate(member.getUpdatedAt());
+        Response.ResponseBuilder notModified = lastModified == null ? request.evaluatePreconditions(tag)
+            : request.evaluatePreconditions(lastModified, tag);
+        if (notModified != null) {
+            return notModified.cacheControl(revalidate()).build();
+        }
+        return Response.ok(member).tag(tag).lastModified(lastModified).cacheControl(revalidate()).build();
+    }
+
+    /**
+     * Replaces the name, email and phone number of a member. With an <code>If-Match</code> header carrying the entity tag of
+     * the member, the update is only made if the member has not changed since, else the response is 412. Without it, the
+     * response is 409 if another update of the member commits first. The response carries the member as updated, and its new
+     * entity tag.
+     */
+    @PUT
     @Path("/{id:[0-9][0-9]*}")
+    @Consumes(MediaType.APPLICATION_JSON)
     @Produces(MediaType.APPLICATION_JSON)
-    public Member lookupMemberById(@PathParam("id") long id) {
-        Member member = repository.findById(id);
-        if (member == null) {
-            throw new WebApplicationException(Response.Status.NOT_FOUND);
+    public CompletionStage<Response> updateMember(@PathParam("id") long id, @HeaderParam(HttpHeaders.IF_MATCH) String ifMatch,
+        Member values) {
+        if (values == null) {
+            throw new WebApplicationException(Response.Status.BAD_REQUEST);
         }
-        return member;
+        Collection<Long> expectedVersions = parseIfMatch(id, ifMatch);
+        return requestExecutor.supply(() -> modifyMember(id, ifMatch, expectedVersions, member -> {
+            member.setName(values.getName());
+            member.setEmail(values.getEmail());
+            member.setPhoneNumber(values.getPhoneNumber());
+        }));
+    }
+
+    /**
+     * Changes some of the fields of a member, given as a JSON merge patch (RFC 7396): the fields present in the patch are
+     * replaced, the others are left as they are. See {@link #updateMember(long, String, Member)}.
+     */
+    @PATCH
+    @Path("/{id:[0-9][0-9]*}")
+    @Consumes({ APPLICATION_MERGE_PATCH_JSON, MediaType.APPLICATION_JSON })
+    @Produces(MediaType.APPLICATION_JSON)
+    public CompletionStage<Response> patchMember(@PathParam("id") long id, @HeaderParam(HttpHeaders.IF_MATCH) String ifMatch,
+        JsonObject patch) {
+        Consumer<Member> changes = readPatch(patch);
+        Collection<Long> expectedVersions = parseIfMatch(id, ifMatch);
+        return requestExecutor.supply(() -> modifyMember(id, ifMatch, expectedVersions, changes));
+    }
+
+    /**
+     * Deletes a member, answering 204. The <code>If-Match</code> header is handled as by
+     * {@link #updateMember(long, String, Member)}.
+     */
+    @DELETE
+    @Path("/{id:[0-9][0-9]*}")
+    @Produces(MediaType.APPLICATION_JSON)
+    public CompletionStage<Response> deleteMember(@PathParam("id") long id, @HeaderParam(HttpHeaders.IF_MATCH) String ifMatch) {
+        Collection<Long> expectedVersions = parseIfMatch(id, ifMatch);
+        return requestExecutor.supply(() -> removeMember(id, ifMatch, expectedVersions));
+    }
+
+    private Response modifyMember(long id, String ifMatch, Collection<Long> expectedVersions, Consumer<Member> changes) {
+        try {
+            Optional<MemberSummary> updated = modification.update(id, expectedVersions, changes);
+            if (updated.isEmpty()) {
+                return Response.status(Response.Status.NOT_FOUND).build();
+            }
+            MemberSummary member = updated.get();
+            Date lastModified = member.getUpdatedAt() == null ? null : toHttpDate(member.getUpdatedAt());
+            return Response.ok(member).tag(tagOf(member)).lastModified(lastModified).build();
+        } catch (InvalidMemberException e) {
+            return Response.status(Response.Status.BAD_REQUEST).entity(e.getErrors()).build();
+        } catch (DuplicateEmailException e) {
+            return Response.status(Response.Status.CONFLICT).entity(Map.of("email", "Email taken")).build();
+        } catch (StaleMemberException e) {
+            return createStaleResponse(e, ifMatch);
+        }
+    }
+
+    private Response removeMember(long id, String ifMatch, Collection<Long> expectedVersions) {
+        try {
+            if (!modification.delete(id, expectedVersions)) {
+                return Response.status(Response.Status.NOT_FOUND).build();
+            }
+            return Response.noContent().build();
+        } catch (StaleMemberException e) {
+            return createStaleResponse(e, ifMatch);
+        }
+    }
+
+    // The client made its change against an outdated version of the member: if it said which one, its precondition failed
+    private static Response createStaleResponse(StaleMemberException e, String ifMatch) {
+        Response.Status status = ifMatch == null ? Response.Status.CONFLICT : Response.Status.PRECONDITION_FAILED;
+        return Response.status(status).entity(Map.of("error", e.getMessage())).build();
+    }
+
+    /**
+     * Reads the versions of a member listed by an <code>If-Match</code> header, as entity tags made of the id and version of
+     * the member. Tags of other members, and weak tags, which never match, are left out.
+     *
+     * @return The versions, possibly none, or null if the header is missing or matches any version
+     */
+    private static Collection<Long> parseIfMatch(long id, String ifMatch) {
+        if (ifMatch == null || ifMatch.strip().equals("*")) {
+            return null;
+        }
+        Collection<Long> versions = new HashSet<>();
+        String prefix = "\"" + id + "-";
+        for (String tag : ifMatch.split(",")) {
+            tag = tag.strip();
+            if (tag.startsWith("W/")) {
+                continue;
+            }
+            if (tag.length() < 2 || !tag.startsWith("\"") || !tag.endsWith("\"")) {
+                throw new WebApplicationException(Response.Status.BAD_REQUEST);
+            }
+            if (tag.startsWith(prefix)) {
+                try {
+                    versions.add(Long.valueOf(tag.substring(prefix.length(), tag.length() - 1)));
+                } catch (NumberFormatException e) {
+                    // Not a tag of ours, it matches nothing
+                }
+            }
+        }
+        return versions;
+    }
+
+    // Reads a JSON merge patch of the name, email and phone number of a member
+    private static Consumer<Member> readPatch(JsonObject patch) {
+        if (patch == null) {
+            throw new WebApplicationException(Response.Status.BAD_REQUEST);
+        }
+        Consumer<Member> changes = member -> {
+        };
+        for (Map.Entry<String, JsonValue> field : patch.entrySet()) {
+            JsonValue value = field.getValue();
+            if (value.getValueType() != JsonValue.ValueType.STRING && value.getValueType() != JsonValue.ValueType.NULL) {
+                throw new WebApplicationException(Response.Status.BAD_REQUEST);
+            }
+            // Null removes the field, which the validation of the member then refuses
+            String text = value.getValueType() == JsonValue.ValueType.NULL ? null : ((JsonString) value).getString();
+            switch (field.getKey()) {
+                case "name":
+                    changes = changes.andThen(member -> member.setName(text));
+                    break;
+                case "email":
+                    changes = changes.andThen(member -> member.setEmail(text));
+                    break;
+                case "phoneNumber":
+                    changes = changes.andThen(member -> member.setPhoneNumber(text));
+                    break;
+                default:
+                    throw new WebApplicationException(Response.Status.BAD_REQUEST);
+            }
+        }
+        return changes;
+    }
+
+    private static EntityTag tagOf(MemberSummary member) {
+        return new EntityTag(member.getId() + "-" + member.getVersion());
     }
 
     /**
@@ -89,61 +514,235 @@ public class MemberResourceRESTService {
     @POST
     @Consumes(MediaType.APPLICATION_JSON)
     @Produces(MediaType.APPLICATION_JSON)
-    public Response createMember(Member member) {
+    public CompletionStage<Response> createMember(Member member) {
+        if (registrationQueue.isEnabled()) {
+            return requestExecutor.supply(() -> enqueueMember(member)).thenCompose(Function.identity());
+        }
+        return requestExecutor.supply(() -> registerMember(member));
+    }
+
+    private Response registerMember(Member member) {
 
         Response.ResponseBuilder builder = null;
 
         try {
-            // Validates member using bean validation
-            validateMember(member);
+            // Validates member against its bean validation constraints
+            Map<String, String> errors = memberValidator.validate(member);
+
+            if (!errors.isEmpty()) {
+                log.fine("Validation completed. violations found: " + errors.size());
+                countRejection("validation");
+                return Response.status(Response.Status.BAD_REQUEST).entity(errors).build();
+            }
 
             registration.register(member);
 
             // Create an "ok" response
             builder = Response.ok();
-        } catch (ConstraintViolationException ce) {
+        } catch (Exception e) {
+            builder = createFailureResponse(e);
+        }
+
+        return builder.build();
+    }
+
+    /**
+     * Validates the member, then hands it over to the {@link RegistrationQueue}. The response is the same as when the member is
+     * registered right away: it completes once the member is stored, unless registrations are acknowledged as soon as they are
+     * queued. A full or stopped queue gets a 503 response.
+     */
+    private CompletionStage<Response> enqueueMember(Member member) {
+        Map<String, String> errors = memberValidator.validate(member);
+        if (!errors.isEmpty()) {
+            log.fine("Validation completed. violations found: " + errors.size());
+            countRejection("validation");
+            return CompletableFuture.completedFuture(Response.status(Response.Status.BAD_REQUEST).entity(errors).build());
+        }
+        CompletionStage<Member> registered;
+        try {
+            registered = registrationQueue.submit(member);
+        } catch (RejectedExecutionException e) {
+            countRejection("queue_full");
+            return CompletableFuture.completedFuture(Response.status(Response.Status.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, 1)
+                .build());
+        } catch (Exception e) {
+            return CompletableFuture.completedFuture(createFailureResponse(e).build());
+        }
+        if (registrationQueue.isAckOnEnqueue()) {
+            return CompletableFuture.completedFuture(Response.ok().build());
+        }
+        return registered.handle((stored, failure) -> {
+            if (failure == null) {
+                return Response.ok().build();
+            }
+            Throwable cause = failure instanceof CompletionException ? failure.getCause() : failure;
+            if (cause instanceof RejectedExecutionException) {
+                // The application is being stopped
+                countRejection("queue_stopped");
+                return Response.status(Response.Status.SERVICE_UNAVAILABLE)
+                    .header(HttpHeaders.RETRY_AFTER, 1)
+                    .build();
+            }
+            return createFailureResponse(cause).build();
+        });
+    }
+
+    // Maps the exception that prevented a registration to a 400 or 409 response
+    private Response.ResponseBuilder createFailureResponse(Throwable e) {
+        if (e instanceof ConstraintViolationException) {
             // Handle bean validation issues
-            builder = createViolationResponse(ce.getConstraintViolations());
-        } catch (ValidationException e) {
+            countRejection("validation");
+            return createViolationResponse(((ConstraintViolationException) e).getConstraintViolations());
+        }
+        if (e instanceof DuplicateEmailException) {
+            countRejection("email_taken");
             // Handle the unique constrain violation
             Map<String, String> responseObj = new HashMap<>();
             responseObj.put("email", "Email taken");
-            builder = Response.status(Response.Status.CONFLICT).entity(responseObj);
-        } catch (Exception e) {
-            // Handle generic exceptions
-            Map<String, String> responseObj = new HashMap<>();
-            responseObj.put("error", e.getMessage());
-            builder = Response.status(Response.Status.BAD_REQUEST).entity(responseObj);
+            return Response.status(Response.Status.CONFLICT).entity(responseObj);
         }
+        // Handle generic exceptions
+        countRejection("bad_request");
+        Map<String, String> responseObj = new HashMap<>();
+        responseObj.put("error", e.getMessage());
+        return Response.status(Response.Status.BAD_REQUEST).entity(responseObj);
+    }
 
-        return builder.build();
+    /**
+     * Registers many members at once, from a JSON array. All members are validated up front, email uniqueness is checked for
+     * the whole batch with a single query, and the members are stored in chunked transactions using JDBC batching. The
+     * response lists the outcome of every member, in the order they were sent.
+     */
+    @POST
+    @Path("/batch")
+    @Consumes(MediaType.APPLICATION_JSON)
+    @Produces(MediaType.APPLICATION_JSON)
+    public CompletionStage<List<MemberBatchResult>> createMembers(List<Member> members) {
+        checkBatch(members);
+        return requestExecutor.supply(() -> registerBatch(members));
     }
 
     /**
-     * <p>
-     * Validates the given Member variable and throws validation exceptions based on the type of error. If the error is standard
-     * bean validation errors then it will throw a ConstraintValidationException with the set of the constraints violated.
-     * </p>
-     * <p>
-     * If the error is caused because an existing member with the same email is registered it throws a regular validation
-     * exception so that it can be interpreted separately.
-     * </p>
-     *
-     * @param member Member to be validated
-     * @throws ConstraintViolationException If Bean Validation errors exist
-     * @throws ValidationException If member with the same email already exists
+     * Registers many members at once, from newline delimited JSON with one member per line. See
+     * {@link #createMembers(List)}.
      */
-    private void validateMember(Member member) throws ConstraintViolationException, ValidationException {
-        // Create a bean validator and check for issues.
-        Set<ConstraintViolation<Member>> violations = validator.validate(member);
+    @POST
+    @Path("/batch")
+    @Consumes(APPLICATION_NDJSON)
+    @Produces(MediaType.APPLICATION_JSON)
+    public CompletionStage<List<MemberBatchResult>> createMembersFromNdjson(InputStream input) throws IOException {
+        List<Member> members = new ArrayList<>();
+        BufferedReader reader = new BufferedReader(new InputStreamReader(input, StandardCharsets.UTF_8));
+        for (String line = reader.readLine(); line != null; line = reader.readLine()) {
+            if (line.isBlank()) {
+                continue;
+            }
+            if (members.size() == MAX_BATCH_SIZE) {
+                throw new WebApplicationException(Response.Status.REQUEST_ENTITY_TOO_LARGE);
+            }
+            members.add(readMember(line));
+        }
+        return requestExecutor.supply(() -> registerBatch(members));
+    }
+
+    private void checkBatch(List<Member> members) {
+        if (members == null) {
+            throw new WebApplicationException(Response.Status.BAD_REQUEST);
+        }
+        if (members.size() > MAX_BATCH_SIZE) {
+            throw new WebApplicationException(Response.Status.REQUEST_ENTITY_TOO_LARGE);
+        }
+    }
+
+    private List<MemberBatchResult> registerBatch(List<Member> members) {
+        MemberBatchResult[] results = new MemberBatchResult[members.size()];
+
+        // Validate every member, and keep the first occurrence of each email for the uniqueness check
+        Map<String, Integer> candidates = new LinkedHashMap<>();
+        for (int i = 0; i < members.size(); i++) {
+            Member member = members.get(i);
+            if (member == null) {
+                results[i] = MemberBatchResult.invalid(i, Map.of("error", "Missing member"));
+                continue;
+            }
+            Map<String, String> errors = memberValidator.validate(member);
+            if (!errors.isEmpty()) {
+                results[i] = MemberBatchResult.invalid(i, errors);
+            } else if (candidates.putIfAbsent(member.getEmail(), i) != null) {
+                results[i] = MemberBatchResult.emailTaken(i);
+            }
+        }
+
+        // Check the uniqueness of all the emails at once, querying only those the email filter may hold
+        Set<String> existing = emailFilter.findTaken(candidates.keySet());
+        List<Integer> accepted = new ArrayList<>(candidates.size());
+        for (Map.Entry<String, Integer> candidate : candidates.entrySet()) {
+            if (existing.contains(candidate.getKey())) {
+                results[candidate.getValue()] = MemberBatchResult.emailTaken(candidate.getValue());
+            } else {
+                accepted.add(candidate.getValue());
+            }
+        }
+
+        for (int from = 0; from < accepted.size(); from += BATCH_CHUNK_SIZE) {
+            List<Integer> chunk = accepted.subList(from, Math.min(from + BATCH_CHUNK_SIZE, accepted.size()));
+            List<Member> chunkMembers = new ArrayList<>(chunk.size());
+            for (int index : chunk) {
+                chunkMembers.add(members.get(index));
+            }
+            try {
+                registration.registerAll(chunkMembers);
+                for (int index : chunk) {
+                    results[index] = MemberBatchResult.registered(index, members.get(index).getId());
+                }
+            } catch (Exception e) {
+                // The chunk was rolled back, typically because an email was registered concurrently. Store its members
+                // one by one to find out which of them failed.
+                log.fine("Bulk registration chunk failed, retrying members one by one: " + e.getMessage());
+                for (int index : chunk) {
+                    results[index] = registerOne(index, members.get(index));
+                }
+            }
+        }
+        for (MemberBatchResult result : results) {
+            if (result.getStatus() == Response.Status.BAD_REQUEST.getStatusCode()) {
+                countRejection("validation");
+            } else if (result.getStatus() == Response.Status.CONFLICT.getStatusCode()) {
+                countRejection("email_taken");
+            }
+        }
+        return Arrays.asList(results);
+    }
+
+    // Counts the members that could not be registered, by reason
+    private void countRejection(String reason) {
+        registry.counter("kitchensink.members.rejected", "reason", reason).increment();
+    }
 
-        if (!violations.isEmpty()) {
-            throw new ConstraintViolationException(new HashSet<>(violations));
+    private MemberBatchResult registerOne(int index, Member member) {
+        // Forget the id assigned by the rolled back attempt
+        member.setId(null);
+        try {
+            registration.register(member);
+            return MemberBatchResult.registered(index, member.getId());
+        } catch (DuplicateEmailException e) {
+            return MemberBatchResult.emailTaken(index);
+        } catch (Exception e) {
+            return MemberBatchResult.invalid(index, Map.of("error", String.valueOf(e.getMessage())));
         }
+    }
 
-        // Check the uniqueness of the email address
-        if (emailAlreadyExists(member.getEmail())) {
-            throw new ValidationException("Unique Email Violation");
+    private Member readMember(String line) {
+        try (JsonReader reader = Json.createReader(new StringReader(line))) {
+            JsonObject json = reader.readObject();
+            Member member = new Member();
+            member.setName(json.getString("name", null));
+            member.setEmail(json.getString("email", null));
+            member.setPhoneNumber(json.getString("phoneNumber", null));
+            return member;
+        } catch (JsonException e) {
+            throw new WebApplicationException(Response.Status.BAD_REQUEST);
         }
     }
 
@@ -154,32 +753,42 @@ public class MemberResourceRESTService {
      * @param violations A set of violations that needs to be reported
      * @return JAX-RS response containing all violations
      */
-    private Response.ResponseBuilder createViolationResponse(Set<ConstraintViolation<?>> violations) {
+    Response.ResponseBuilder createViolationResponse(Set<ConstraintViolation<?>> violations) {
         log.fine("Validation completed. violations found: " + violations.size());
 
-        Map<String, String> responseObj = new HashMap<>();
-
-        for (ConstraintViolation<?> violation : violations) {
-            responseObj.put(violation.getPropertyPath().toString(), violation.getMessage());
-        }
-
-        return Response.status(Response.Status.BAD_REQUEST).entity(responseObj);
+        return Response.status(Response.Status.BAD_REQUEST).entity(MemberValidator.toErrorMap(violations));
     }
 
     /**
-     * Checks if a member with the same email address is already registered. This is the only way to easily capture the
-     * "@UniqueConstraint(columnNames = "email")" constraint from the Member class.
+     * Checks if a member with the same email address is already registered, querying the database only if the
+     * {@link EmailFilter} may hold the email. Registration does not need it, the
+     * "@UniqueConstraint(columnNames = "email")" constraint from the Member class is enforced when the member is stored.
      *
      * @param email The email to check
      * @return True if the email already exists, and false otherwise
      */
     public boolean emailAlreadyExists(String email) {
-        Member member = null;
-        try {
-            member = repository.findByEmail(email);
-        } catch (NoResultException e) {
-            // ignore
-        }
-        return member != null;
+        return emailFilter.isTaken(email);
+    }
+
+    // Caches may store the responses, but must check with the server before reusing them
+    private static CacheControl revalidate() {
+        CacheControl cacheControl = new CacheControl();
+        cacheControl.setNoCache(true);
+        return cacheControl;
+    }
+
+    // HTTP dates have a precision of one second
+    private static Date toHttpDate(Instant instant) {
+        return Date.from(instant.truncatedTo(ChronoUnit.SECONDS));
+    }
+
+    private void writeMember(JsonGenerator json, MemberSummary member) {
+        json.writeStartObject()
+            .write("id", member.getId())
+            .write("name", member.getName())
+            .write("email", member.getEmail())
+            .write("phoneNumber", member.getPhoneNumber())
+            .writeEnd();
     }
 }
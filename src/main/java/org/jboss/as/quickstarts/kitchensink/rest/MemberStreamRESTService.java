@@ -0,0 +1,67 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2015, Red Hat, Inc. and/or its affiliates, and individual
+ * contributors by the @authors tag. See the copyright.txt in the
+ * distribution for a full listing of individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.as.quickstarts.kitchensink.rest;
+
+import jakarta.enterprise.context.RequestScoped;
+import jakarta.inject.Inject;
+import jakarta.ws.rs.GET;
+import jakarta.ws.rs.HeaderParam;
+import jakarta.ws.rs.Path;
+import jakarta.ws.rs.Produces;
+import jakarta.ws.rs.WebApplicationException;
+import jakarta.ws.rs.core.Context;
+import jakarta.ws.rs.core.HttpHeaders;
+import jakarta.ws.rs.core.MediaType;
+import jakarta.ws.rs.core.Response;
+import jakarta.ws.rs.sse.Sse;
+import jakarta.ws.rs.sse.SseEventSink;
+
+/**
+ * Streams the newly registered and updated members as server-sent events, so clients do not need to poll the member list. It is kept
+ * apart from {@link MemberResourceRESTService} as the long lived streams must not hold the slots of its concurrency limits.
+ *
+ * @see MemberFeed
+ */
+@Path("/members/stream")
+@RequestScoped
+public class MemberStreamRESTService {
+
+    @Inject
+    private MemberFeed memberFeed;
+
+    /**
+     * Opens the stream. A client reconnecting with a <code>Last-Event-ID</code> header first gets the members registered or
+     * updated since the event with that id.
+     */
+    @GET
+    @Produces(MediaType.SERVER_SENT_EVENTS)
+    public void streamMembers(@Context SseEventSink sink, @Context Sse sse,
+        @HeaderParam(HttpHeaders.LAST_EVENT_ID_HEADER) String lastEventId) {
+        String after = lastEventId == null || lastEventId.isBlank() ? null : lastEventId.strip();
+        boolean subscribed;
+        try {
+            subscribed = memberFeed.subscribe(sink, sse, after);
+        } catch (IllegalArgumentException e) {
+            throw new WebApplicationException(Response.Status.BAD_REQUEST);
+        }
+        if (!subscribed) {
+            throw new WebApplicationException(Response.status(Response.Status.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, 10)
+                .build());
+        }
+    }
+}
@@ -0,0 +1,118 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2015, Red Hat, Inc. and/or its affiliates, and individual
+ * contributors by the @authors tag. See the copyright.txt in the
+ * distribution for a full listing of individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.as.quickstarts.kitchensink.rest;
+
+import java.io.IOException;
+
+import jakarta.annotation.Priority;
+import jakarta.inject.Inject;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.ws.rs.HttpMethod;
+import jakarta.ws.rs.Priorities;
+import jakarta.ws.rs.container.ContainerRequestContext;
+import jakarta.ws.rs.container.ContainerRequestFilter;
+import jakarta.ws.rs.container.ContainerResponseContext;
+import jakarta.ws.rs.container.ContainerResponseFilter;
+import jakarta.ws.rs.container.ResourceInfo;
+import jakarta.ws.rs.core.Context;
+import jakarta.ws.rs.core.HttpHeaders;
+import jakarta.ws.rs.core.Response;
+import jakarta.ws.rs.ext.Provider;
+import jakarta.ws.rs.ext.WriterInterceptor;
+import jakarta.ws.rs.ext.WriterInterceptorContext;
+
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * Sheds the load on the endpoints annotated with {@link RateLimited}. A client going over its rate gets a 429 response, and a
+ * request arriving when the concurrency limit of its endpoint is reached gets a 503 response, both with a
+ * <code>Retry-After</code> header.
+ * <p>
+ * The concurrency slot is held until the response entity is written, so streamed responses count until their last byte.
+ * {@link PermitReleaseListener} releases the slots of requests that ended with an unhandled exception.
+ * </p>
+ *
+ * @see RequestLimiter
+ */
+@Provider
+@RateLimited
+@Priority(Priorities.USER - 1000)
+public class RateLimitFilter implements ContainerRequestFilter, ContainerResponseFilter, WriterInterceptor {
+
+    static final String PERMIT = RateLimitFilter.class.getName() + ".permit";
+
+    private static final String FORWARDED_FOR = "X-Forwarded-For";
+
+    @Inject
+    private RequestLimiter limiter;
+
+    @Inject
+    private MeterRegistry registry;
+
+    @Context
+    private ResourceInfo resourceInfo;
+
+    @Context
+    private HttpServletRequest servletRequest;
+
+    @Override
+    public void filter(ContainerRequestContext request) {
+        String client = limiter.clientOf(servletRequest.getRemoteAddr(), request.getHeaders().get(FORWARDED_FOR));
+        long retryAfter = limiter.tryAcquire(client);
+        if (retryAfter > 0) {
+            reject(request, Response.Status.TOO_MANY_REQUESTS, retryAfter, "rate_limit");
+            return;
+        }
+        String method = request.getMethod();
+        boolean write = !HttpMethod.GET.equals(method) && !HttpMethod.HEAD.equals(method);
+        RequestLimiter.Permit permit = limiter.tryAcquire(resourceInfo.getResourceMethod(), write);
+        if (permit == null) {
+            reject(request, Response.Status.SERVICE_UNAVAILABLE, 1, "concurrency_limit");
+            return;
+        }
+        request.setProperty(PERMIT, permit);
+    }
+
+    @Override
+    public void filter(ContainerRequestContext request, ContainerResponseContext response) {
+        RequestLimiter.Permit permit = (RequestLimiter.Permit) request.getProperty(PERMIT);
+        if (permit != null && !response.hasEntity()) {
+            request.removeProperty(PERMIT);
+            permit.release(response.getStatus() >= 500);
+        }
+    }
+
+    @Override
+    public void aroundWriteTo(WriterInterceptorContext context) throws IOException {
+        boolean failed = true;
+        try {
+            context.proceed();
+            failed = false;
+        } finally {
+            RequestLimiter.Permit permit = (RequestLimiter.Permit) context.getProperty(PERMIT);
+            if (permit != null) {
+                context.removeProperty(PERMIT);
+                permit.release(failed);
+            }
+        }
+    }
+
+    private void reject(ContainerRequestContext request, Response.Status status, long retryAfter, String reason) {
+        registry.counter("kitchensink.requests.shed", "reason", reason).increment();
+        request.abortWith(Response.status(status).header(HttpHeaders.RETRY_AFTER, retryAfter).build());
+    }
+}
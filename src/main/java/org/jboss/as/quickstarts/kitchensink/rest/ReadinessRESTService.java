@@ -0,0 +1,56 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2015, Red Hat, Inc. and/or its affiliates, and individual
+ * contributors by the @authors tag. See the copyright.txt in the
+ * distribution for a full listing of individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.as.quickstarts.kitchensink.rest;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import jakarta.enterprise.context.RequestScoped;
+import jakarta.inject.Inject;
+import jakarta.ws.rs.GET;
+import jakarta.ws.rs.Path;
+import jakarta.ws.rs.Produces;
+import jakarta.ws.rs.core.HttpHeaders;
+import jakarta.ws.rs.core.MediaType;
+import jakarta.ws.rs.core.Response;
+
+import org.jboss.as.quickstarts.kitchensink.service.Warmup;
+
+/**
+ * Readiness of the application for a load balancer or a readiness probe: 503 while the application warms up, then 200 with
+ * the duration of each startup phase.
+ */
+@Path("/ready")
+@RequestScoped
+public class ReadinessRESTService {
+
+    @Inject
+    private Warmup warmup;
+
+    @GET
+    @Produces(MediaType.APPLICATION_JSON)
+    public Response getReadiness() {
+        Map<String, Object> body = new LinkedHashMap<>();
+        if (!warmup.isReady()) {
+            body.put("status", "WARMING_UP");
+            return Response.status(Response.Status.SERVICE_UNAVAILABLE).header(HttpHeaders.RETRY_AFTER, 1).entity(body).build();
+        }
+        body.put("status", "UP");
+        body.put("startup", warmup.getPhases());
+        return Response.ok(body).build();
+    }
+}
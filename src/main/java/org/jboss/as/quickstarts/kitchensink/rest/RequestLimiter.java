@@ -0,0 +1,359 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2015, Red Hat, Inc. and/or its affiliates, and individual
+ * contributors by the @authors tag. See the copyright.txt in the
+ * distribution for a full listing of individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.as.quickstarts.kitchensink.rest;
+
+import java.lang.reflect.Method;
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Pattern;
+
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * Holds the state of the REST API limits: a token bucket per client, and an adaptive concurrency limit per endpoint plus one
+ * shared by all the endpoints, as the datasource pool is.
+ * <p>
+ * The concurrency limits follow an additive increase, multiplicative decrease scheme. A request completing within the target
+ * latency while the limit is at least half used raises the limit by about one per limit's worth of requests, a request slower
+ * than the target, or failing with a server error, lowers it by a tenth. Reads may only use a share of the limits, so writes
+ * always find room left by bulk reads. The latency of the endpoints annotated with <code>@RateLimited(latencyBound = false)</code>
+ * is not compared to the target.
+ * </p>
+ * <p>
+ * The limits are configured with system properties: <code>kitchensink.ratelimit.rate</code> and
+ * <code>kitchensink.ratelimit.burst</code> for the requests per second and the burst allowed to each client,
+ * <code>kitchensink.limiter.initial</code>, <code>kitchensink.limiter.min</code> and <code>kitchensink.limiter.max</code> for
+ * the bounds of the concurrency limits, <code>kitchensink.limiter.latency</code> for the target latency in milliseconds, and
+ * <code>kitchensink.limiter.reads</code> for the percentage of the limits reads may use.
+ * </p>
+ * <p>
+ * Clients are told apart by their address. Behind a reverse proxy, such as the OpenShift router, every request comes from the
+ * proxy, so the addresses or CIDR blocks of the proxies are listed, comma separated, in the
+ * <code>kitchensink.ratelimit.trustedProxies</code> system property: the client of a request coming from one of them is the
+ * last address of its <code>X-Forwarded-For</code> header that is not a trusted proxy. Addresses added by the client itself
+ * come first in the header, so they cannot be used to get another bucket.
+ * </p>
+ */
+@ApplicationScoped
+public class RequestLimiter {
+
+    // Beyond this number of clients the buckets of idle clients are dropped
+    private static final int MAX_CLIENTS = 10_000;
+
+    // Only IP literals are parsed, so that a forwarded address never triggers a DNS lookup
+    private static final Pattern IP_LITERAL = Pattern.compile("\\d{1,3}(\\.\\d{1,3}){3}|[0-9a-fA-F:.]*:[0-9a-fA-F:.]*");
+
+    private static final double BACKOFF = 0.9;
+
+    private final double rate = Integer.getInteger("kitchensink.ratelimit.rate", 100);
+
+    private final double burst = Integer.getInteger("kitchensink.ratelimit.burst", 200);
+
+    private final int initialLimit = Integer.getInteger("kitchensink.limiter.initial", 20);
+
+    private final int minLimit = Integer.getInteger("kitchensink.limiter.min", 2);
+
+    private final int maxLimit = Integer.getInteger("kitchensink.limiter.max", 200);
+
+    private final long targetLatency = TimeUnit.MILLISECONDS.toNanos(Integer.getInteger("kitchensink.limiter.latency", 250));
+
+    private final double readShare = Integer.getInteger("kitchensink.limiter.reads", 75) / 100.0;
+
+    private final List<AddressBlock> trustedProxies = AddressBlock.parseAll(
+        System.getProperty("kitchensink.ratelimit.trustedProxies", ""));
+
+    private final Map<String, TokenBucket> buckets = new ConcurrentHashMap<>();
+
+    private final Map<Method, AdaptiveLimit> endpointLimits = new ConcurrentHashMap<>();
+
+    private final AdaptiveLimit sharedLimit = new AdaptiveLimit(initialLimit * 2, maxLimit * 2, true);
+
+    private volatile long lastEviction;
+
+    @Inject
+    private MeterRegistry registry;
+
+    /**
+     * Tells which client sent a request, looking through the trusted proxies it went through.
+     *
+     * @param remoteAddress The address the request came from
+     * @param forwardedFor The values of the <code>X-Forwarded-For</code> headers of the request, or null
+     * @return The address of the client
+     */
+    public String clientOf(String remoteAddress, List<String> forwardedFor) {
+        if (forwardedFor == null || !isTrustedProxy(remoteAddress)) {
+            return remoteAddress;
+        }
+        List<String> hops = new ArrayList<>();
+        for (String header : forwardedFor) {
+            for (String hop : header.split(",")) {
+                if (!hop.isBlank()) {
+                    hops.add(hop.strip());
+                }
+            }
+        }
+        String client = remoteAddress;
+        // Each proxy appends the address it got the request from, the last ones are the most trustworthy
+        for (int i = hops.size() - 1; i >= 0; i--) {
+            client = hops.get(i);
+            if (!isTrustedProxy(client)) {
+                break;
+            }
+        }
+        return client;
+    }
+
+    private boolean isTrustedProxy(String address) {
+        if (trustedProxies.isEmpty()) {
+            return false;
+        }
+        InetAddress parsed = AddressBlock.parse(address);
+        if (parsed == null) {
+            return false;
+        }
+        for (AddressBlock block : trustedProxies) {
+            if (block.contains(parsed)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Takes a token from the bucket of a client.
+     *
+     * @param client The address of the client
+     * @return 0 if the request is allowed, else the number of seconds after which the client may retry
+     */
+    public long tryAcquire(String client) {
+        long now = System.nanoTime();
+        if (buckets.size() > MAX_CLIENTS && now - lastEviction > TimeUnit.SECONDS.toNanos(1)) {
+            lastEviction = now;
+            buckets.values().removeIf(bucket -> bucket.isFull(now));
+        }
+        return buckets.computeIfAbsent(client, c -> new TokenBucket(now)).tryTake(now);
+    }
+
+    /**
+     * Takes a slot of the concurrency limit of an endpoint, and of the shared limit.
+     *
+     * @param endpoint The resource method
+     * @param write True for requests modifying data, which may use the whole limits
+     * @return The permit to release once the response is written, or null if the limits are reached
+     */
+    public Permit tryAcquire(Method endpoint, boolean write) {
+        AdaptiveLimit endpointLimit = endpointLimits.computeIfAbsent(endpoint, this::createLimit);
+        double share = write ? 1.0 : readShare;
+        if (!endpointLimit.tryAcquire(share)) {
+            return null;
+        }
+        if (!sharedLimit.tryAcquire(share)) {
+            endpointLimit.abort();
+            return null;
+        }
+        return new Permit(endpointLimit, System.nanoTime());
+    }
+
+    private AdaptiveLimit createLimit(Method endpoint) {
+        RateLimited rateLimited = endpoint.getAnnotation(RateLimited.class);
+        AdaptiveLimit limit = new AdaptiveLimit(initialLimit, maxLimit, rateLimited == null || rateLimited.latencyBound());
+        Gauge.builder("kitchensink.limiter.limit", limit, AdaptiveLimit::getLimit)
+            .tag("endpoint", endpoint.getDeclaringClass().getSimpleName() + "." + endpoint.getName())
+            .description("Concurrent requests currently allowed on the endpoint")
+            .register(registry);
+        return limit;
+    }
+
+    /**
+     * A slot taken in the concurrency limits, released once the request completes.
+     */
+    public class Permit {
+
+        private final AdaptiveLimit endpointLimit;
+
+        private final long start;
+
+        private final AtomicBoolean released = new AtomicBoolean();
+
+        Permit(AdaptiveLimit endpointLimit, long start) {
+            this.endpointLimit = endpointLimit;
+            this.start = start;
+        }
+
+        /**
+         * Releases the slot and adapts the limits to the latency of the request. Only the first call has an effect.
+         *
+         * @param failed True if the request failed with a server error
+         */
+        public void release(boolean failed) {
+            if (released.compareAndSet(false, true)) {
+                boolean overloaded = failed || endpointLimit.latencyBound && System.nanoTime() - start > targetLatency;
+                endpointLimit.release(overloaded);
+                sharedLimit.release(overloaded);
+            }
+        }
+    }
+
+    private class TokenBucket {
+
+        private double tokens = burst;
+
+        private long refilled;
+
+        TokenBucket(long now) {
+            refilled = now;
+        }
+
+        synchronized long tryTake(long now) {
+            refill(now);
+            if (tokens >= 1) {
+                tokens--;
+                return 0;
+            }
+            return Math.max(1, (long) Math.ceil((1 - tokens) / rate));
+        }
+
+        synchronized boolean isFull(long now) {
+            refill(now);
+            return tokens >= burst;
+        }
+
+        private void refill(long now) {
+            tokens = Math.min(burst, tokens + (now - refilled) * rate / TimeUnit.SECONDS.toNanos(1));
+            refilled = now;
+        }
+    }
+
+    // An IP address, or a CIDR block of them
+    private static final class AddressBlock {
+
+        private final byte[] network;
+
+        private final int prefixLength;
+
+        private AddressBlock(byte[] network, int prefixLength) {
+            this.network = network;
+            this.prefixLength = prefixLength;
+        }
+
+        static List<AddressBlock> parseAll(String blocks) {
+            List<AddressBlock> parsed = new ArrayList<>();
+            for (String block : blocks.split(",")) {
+                if (block.isBlank()) {
+                    continue;
+                }
+                String[] parts = block.strip().split("/", 2);
+                InetAddress network = parse(parts[0]);
+                if (network == null) {
+                    throw new IllegalArgumentException("Not an IP address or CIDR block: " + block);
+                }
+                int bits = network.getAddress().length * 8;
+                int prefixLength = parts.length == 1 ? bits : Integer.parseInt(parts[1]);
+                if (prefixLength < 0 || prefixLength > bits) {
+                    throw new IllegalArgumentException("Invalid prefix length: " + block);
+                }
+                parsed.add(new AddressBlock(network.getAddress(), prefixLength));
+            }
+            return parsed;
+        }
+
+        static InetAddress parse(String address) {
+            if (address == null || !IP_LITERAL.matcher(address).matches()) {
+                return null;
+            }
+            try {
+                return InetAddress.getByName(address);
+            } catch (UnknownHostException e) {
+                return null;
+            }
+        }
+
+        boolean contains(InetAddress address) {
+            byte[] bytes = address.getAddress();
+            if (bytes.length != network.length) {
+                return false;
+            }
+            int whole = prefixLength / 8;
+            for (int i = 0; i < whole; i++) {
+                if (bytes[i] != network[i]) {
+                    return false;
+                }
+            }
+            int rest = prefixLength % 8;
+            if (rest == 0) {
+                return true;
+            }
+            int mask = 0xff << (8 - rest) & 0xff;
+            return (bytes[whole] & mask) == (network[whole] & mask);
+        }
+    }
+
+    private class AdaptiveLimit {
+
+        private final AtomicInteger inFlight = new AtomicInteger();
+
+        private final int max;
+
+        private final boolean latencyBound;
+
+        private volatile double limit;
+
+        AdaptiveLimit(int initial, int max, boolean latencyBound) {
+            this.limit = initial;
+            this.max = max;
+            this.latencyBound = latencyBound;
+        }
+
+        double getLimit() {
+            return limit;
+        }
+
+        boolean tryAcquire(double share) {
+            int allowed = Math.max(1, (int) (limit * share));
+            for (int current = inFlight.get(); current < allowed; current = inFlight.get()) {
+                if (inFlight.compareAndSet(current, current + 1)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        void abort() {
+            inFlight.decrementAndGet();
+        }
+
+        synchronized void release(boolean overloaded) {
+            int used = inFlight.getAndDecrement();
+            if (overloaded) {
+                limit = Math.max(minLimit, limit * BACKOFF);
+            } else if (used * 2 >= limit) {
+                limit = Math.min(max, limit + 1 / limit);
+            }
+        }
+    }
+}
@@ -0,0 +1,128 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2015, Red Hat, Inc. and/or its affiliates, and individual
+ * contributors by the @authors tag. See the copyright.txt in the
+ * distribution for a full listing of individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.as.quickstarts.kitchensink.rest;
+
+import java.io.IOException;
+import java.lang.reflect.Method;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import jakarta.annotation.Priority;
+import jakarta.inject.Inject;
+import jakarta.ws.rs.Path;
+import jakarta.ws.rs.Priorities;
+import jakarta.ws.rs.container.ContainerRequestContext;
+import jakarta.ws.rs.container.ContainerRequestFilter;
+import jakarta.ws.rs.container.ContainerResponseContext;
+import jakarta.ws.rs.container.ContainerResponseFilter;
+import jakarta.ws.rs.container.ResourceInfo;
+import jakarta.ws.rs.core.Context;
+import jakarta.ws.rs.ext.Provider;
+import jakarta.ws.rs.ext.WriterInterceptor;
+import jakarta.ws.rs.ext.WriterInterceptorContext;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+/**
+ * Records the latency of every REST request in the <code>http.server.requests</code> timer, tagged with the HTTP method, the
+ * URI template of the endpoint and the response status. When the response has an entity the timer is stopped once the entity
+ * is written, so streamed responses are measured until their last byte.
+ * <p>
+ * It runs before {@link RateLimitFilter}, so the requests it sheds are recorded too, with their 429 or 503 status.
+ * </p>
+ */
+@Provider
+@Priority(Priorities.USER - 2000)
+public class RequestMetricsFilter implements ContainerRequestFilter, ContainerResponseFilter, WriterInterceptor {
+
+    private static final String SAMPLE = RequestMetricsFilter.class.getName() + ".sample";
+
+    private static final String TAGS = RequestMetricsFilter.class.getName() + ".tags";
+
+    private static final Map<Method, String> URI_TEMPLATES = new ConcurrentHashMap<>();
+
+    @Inject
+    private MeterRegistry registry;
+
+    @Context
+    private ResourceInfo resourceInfo;
+
+    @Override
+    public void filter(ContainerRequestContext request) {
+        request.setProperty(SAMPLE, Timer.start());
+    }
+
+    @Override
+    public void filter(ContainerRequestContext request, ContainerResponseContext response) {
+        Timer.Sample sample = (Timer.Sample) request.getProperty(SAMPLE);
+        if (sample == null) {
+            return;
+        }
+        String[] tags = { "method", request.getMethod(), "uri", uriTemplate(), "status",
+            String.valueOf(response.getStatus()) };
+        if (response.hasEntity()) {
+            request.setProperty(TAGS, tags);
+        } else {
+            request.removeProperty(SAMPLE);
+            stop(sample, tags);
+        }
+    }
+
+    @Override
+    public void aroundWriteTo(WriterInterceptorContext context) throws IOException {
+        try {
+            context.proceed();
+        } finally {
+            Timer.Sample sample = (Timer.Sample) context.getProperty(SAMPLE);
+            String[] tags = (String[]) context.getProperty(TAGS);
+            if (sample != null && tags != null) {
+                context.removeProperty(SAMPLE);
+                stop(sample, tags);
+            }
+        }
+    }
+
+    private void stop(Timer.Sample sample, String[] tags) {
+        sample.stop(Timer.builder("http.server.requests")
+            .tags(tags)
+            .publishPercentileHistogram()
+            .register(registry));
+    }
+
+    private String uriTemplate() {
+        Method method = resourceInfo.getResourceMethod();
+        if (method == null) {
+            return "UNKNOWN";
+        }
+        return URI_TEMPLATES.computeIfAbsent(method, m -> {
+            StringBuilder template = new StringBuilder();
+            appendPath(template, resourceInfo.getResourceClass().getAnnotation(Path.class));
+            appendPath(template, m.getAnnotation(Path.class));
+            return template.length() == 0 ? "/" : template.toString();
+        });
+    }
+
+    private static void appendPath(StringBuilder template, Path path) {
+        if (path != null && !path.value().isEmpty() && !"/".equals(path.value())) {
+            if (!path.value().startsWith("/")) {
+                template.append('/');
+            }
+            template.append(path.value());
+        }
+    }
+}
@@ -0,0 +1,58 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2015, Red Hat, Inc. and/or its affiliates, and individual
+ * contributors by the @authors tag. See the copyright.txt in the
+ * distribution for a full listing of individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.as.quickstarts.kitchensink.service;
+
+import java.sql.SQLException;
+
+import jakarta.ejb.ApplicationException;
+import jakarta.validation.ValidationException;
+
+/**
+ * Thrown when a member cannot be registered because another member already uses the same email address. It is raised from the
+ * "@UniqueConstraint(columnNames = "email")" constraint of the Member table, so it is reliable even when two registrations race.
+ * <p>
+ * This is an application exception, so it reaches the caller as is rather than wrapped in an EJBException, and the
+ * transaction is rolled back.
+ * </p>
+ */
+@SuppressWarnings("serial")
+@ApplicationException(rollback = true)
+public class DuplicateEmailException extends ValidationException {
+
+    // SQL state reported by the database when a unique constraint is violated
+    private static final String UNIQUE_VIOLATION = "23505";
+
+    public DuplicateEmailException(Throwable cause) {
+        super("Unique Email Violation", cause);
+    }
+
+    public DuplicateEmailException(String email, Throwable cause) {
+        super("Unique Email Violation: " + email, cause);
+    }
+
+    /**
+     * @return True if the given exception, typically raised by a flush, was caused by a unique constraint violation
+     */
+    static boolean isUniqueViolation(Throwable e) {
+        for (Throwable t = e; t != null; t = t.getCause()) {
+            if (t instanceof SQLException && UNIQUE_VIOLATION.equals(((SQLException) t).getSQLState())) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,79 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2015, Red Hat, Inc. and/or its affiliates, and individual
+ * contributors by the @authors tag. See the copyright.txt in the
+ * distribution for a full listing of individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.as.quickstarts.kitchensink.service;
+
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.event.Event;
+import jakarta.enterprise.event.NotificationOptions;
+import jakarta.enterprise.event.Observes;
+import jakarta.enterprise.event.TransactionPhase;
+import jakarta.inject.Inject;
+
+import org.jboss.as.quickstarts.kitchensink.data.EmailFilter;
+import org.jboss.as.quickstarts.kitchensink.data.MemberListView;
+import org.jboss.as.quickstarts.kitchensink.model.Member;
+import org.jboss.as.quickstarts.kitchensink.model.MemberChange;
+import org.jboss.as.quickstarts.kitchensink.util.AsyncEventExecutor;
+
+/**
+ * Forwards the member registered and member changed events to asynchronous observers once the registration or the change
+ * has committed.
+ * <p>
+ * {@link MemberRegistration} and {@link MemberModification} fire their events synchronously, inside the transaction. The
+ * only synchronous observers are transactional ones, which cost nothing until the commit: these, which then hand the events
+ * over to the observers declared with <code>@ObservesAsync</code> on the bounded {@link AsyncEventExecutor}, those of
+ * {@link EmailFilter}, which only update counters in memory, and the one of {@link MemberListView} for updates and deletions,
+ * which must be visible to the next read of the member. Observers therefore never hold the transaction open nor add
+ * noticeably to the registration latency.
+ * </p>
+ */
+@ApplicationScoped
+public class MemberEventDispatcher {
+
+    @Inject
+    private Logger log;
+
+    @Inject
+    private Event<Member> memberEventSrc;
+
+    @Inject
+    private Event<MemberChange> memberChangeEventSrc;
+
+    @Inject
+    private AsyncEventExecutor executor;
+
+    public void onMemberRegistered(@Observes(during = TransactionPhase.AFTER_SUCCESS) final Member member) {
+        memberEventSrc.fireAsync(member, NotificationOptions.ofExecutor(executor))
+            .whenComplete((event, failure) -> {
+                if (failure != null) {
+                    log.log(Level.WARNING, "Member registered observer failed", failure);
+                }
+            });
+    }
+
+    public void onMemberChanged(@Observes(during = TransactionPhase.AFTER_SUCCESS) final MemberChange change) {
+        memberChangeEventSrc.fireAsync(change, NotificationOptions.ofExecutor(executor))
+            .whenComplete((event, failure) -> {
+                if (failure != null) {
+                    log.log(Level.WARNING, "Member changed observer failed", failure);
+                }
+            });
+    }
+}
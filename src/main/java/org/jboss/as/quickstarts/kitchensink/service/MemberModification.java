@@ -0,0 +1,132 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2015, Red Hat, Inc. and/or its affiliates, and individual
+ * contributors by the @authors tag. See the copyright.txt in the
+ * distribution for a full listing of individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.as.quickstarts.kitchensink.service;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.Consumer;
+import java.util.logging.Logger;
+
+import jakarta.ejb.Stateless;
+import jakarta.enterprise.event.Event;
+import jakarta.inject.Inject;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.OptimisticLockException;
+import jakarta.persistence.PersistenceException;
+
+import org.jboss.as.quickstarts.kitchensink.model.Member;
+import org.jboss.as.quickstarts.kitchensink.model.MemberChange;
+import org.jboss.as.quickstarts.kitchensink.model.MemberSummary;
+import org.jboss.as.quickstarts.kitchensink.util.Timed;
+
+/**
+ * Updates and deletes registered members, using optimistic locking: no row is locked while a member is read and modified,
+ * instead the version of the member is checked when the change is written, and the change is refused if another one was
+ * written first. A caller can also require the member to be in a version it has seen, as with an <code>If-Match</code>
+ * header.
+ * <p>
+ * Every change fires a {@link MemberChange} event, which {@link MemberEventDispatcher} forwards to asynchronous observers
+ * once the change has committed.
+ * </p>
+ */
+@Stateless
+@Timed("kitchensink.modification")
+public class MemberModification {
+
+    @Inject
+    private Logger log;
+
+    @Inject
+    private EntityManager em;
+
+    @Inject
+    private MemberValidator memberValidator;
+
+    @Inject
+    private Event<MemberChange> memberChangeEventSrc;
+
+    /**
+     * Applies changes to a member, then validates it.
+     *
+     * @param id The id of the member
+     * @param expectedVersions The versions of the member the changes may be applied to, or null for any version
+     * @param changes The changes to apply to the member
+     * @return A copy of the member once updated, empty if there is no member with that id
+     * @throws StaleMemberException If the member is not in one of the expected versions, or was modified concurrently
+     * @throws InvalidMemberException If the changes break the constraints of the member
+     * @throws DuplicateEmailException If the new email is already used by another member
+     */
+    public Optional<MemberSummary> update(long id, Collection<Long> expectedVersions, Consumer<Member> changes) {
+        Member member = em.find(Member.class, id);
+        if (member == null) {
+            return Optional.empty();
+        }
+        checkVersion(member, expectedVersions);
+        log.info("Updating member " + id);
+        String previousEmail = member.getEmail();
+        changes.accept(member);
+        Map<String, String> errors = memberValidator.validate(member);
+        if (!errors.isEmpty()) {
+            throw new InvalidMemberException(errors);
+        }
+        flush(member);
+        memberChangeEventSrc.fire(MemberChange.updated(member, previousEmail));
+        return Optional.of(MemberSummary.of(member));
+    }
+
+    /**
+     * Deletes a member.
+     *
+     * @param id The id of the member
+     * @param expectedVersions The versions of the member that may be deleted, or null for any version
+     * @return False if there is no member with that id
+     * @throws StaleMemberException If the member is not in one of the expected versions, or was modified concurrently
+     */
+    public boolean delete(long id, Collection<Long> expectedVersions) {
+        Member member = em.find(Member.class, id);
+        if (member == null) {
+            return false;
+        }
+        checkVersion(member, expectedVersions);
+        log.info("Deleting member " + id);
+        em.remove(member);
+        flush(member);
+        memberChangeEventSrc.fire(MemberChange.deleted(member));
+        return true;
+    }
+
+    private void checkVersion(Member member, Collection<Long> expectedVersions) {
+        if (expectedVersions != null && !expectedVersions.contains(member.getVersion())) {
+            throw new StaleMemberException(member.getId(), member.getVersion());
+        }
+    }
+
+    // Writes the change now, so that conflicts are reported here rather than at commit
+    private void flush(Member member) {
+        try {
+            em.flush();
+        } catch (OptimisticLockException e) {
+            throw new StaleMemberException(member.getId(), e);
+        } catch (PersistenceException e) {
+            if (DuplicateEmailException.isUniqueViolation(e)) {
+                throw new DuplicateEmailException(member.getEmail(), e);
+            }
+            throw e;
+        }
+    }
+}
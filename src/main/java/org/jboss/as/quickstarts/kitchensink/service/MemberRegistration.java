@@ -17,17 +17,24 @@
 package org.jboss.as.quickstarts.kitchensink.service;
 
 import org.jboss.as.quickstarts.kitchensink.model.Member;
+import org.jboss.as.quickstarts.kitchensink.util.Timed;
 
 import jakarta.ejb.Stateless;
 import jakarta.enterprise.event.Event;
 import jakarta.inject.Inject;
 import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceException;
+import java.util.List;
 import java.util.logging.Logger;
 
 // The @Stateless annotation eliminates the need for manual transaction demarcation
 @Stateless
+@Timed("kitchensink.registration")
 public class MemberRegistration {
 
+    // Matches hibernate.jdbc.batch_size in persistence.xml
+    private static final int BATCH_SIZE = 50;
+
     @Inject
     private Logger log;
 
@@ -37,9 +44,54 @@ public class MemberRegistration {
     @Inject
     private Event<Member> memberEventSrc;
 
+    /**
+     * Persists a new member. The email uniqueness is enforced by the database rather than checked beforehand, which saves a
+     * query and cannot be raced by a concurrent registration.
+     *
+     * @param member The member to register
+     * @throws DuplicateEmailException If another member already uses the same email
+     */
     public void register(Member member) throws Exception {
         log.info("Registering " + member.getName());
         em.persist(member);
+        try {
+            // Flush now, so that a duplicate email is reported here rather than at commit
+            em.flush();
+        } catch (PersistenceException e) {
+            if (DuplicateEmailException.isUniqueViolation(e)) {
+                throw new DuplicateEmailException(member.getEmail(), e);
+            }
+            throw e;
+        }
         memberEventSrc.fire(member);
     }
+
+    /**
+     * Persists a chunk of new members in a single transaction. Inserts are sent to the database in JDBC batches, and the
+     * persistence context is flushed and cleared every batch so it does not grow with the chunk.
+     *
+     * @param members The members to register, already validated
+     * @throws DuplicateEmailException If any of the emails is already in use, in which case none of the members is stored
+     */
+    public void registerAll(List<Member> members) throws Exception {
+        log.info("Registering " + members.size() + " members");
+        try {
+            for (int i = 0; i < members.size(); i++) {
+                em.persist(members.get(i));
+                if ((i + 1) % BATCH_SIZE == 0) {
+                    em.flush();
+                    em.clear();
+                }
+            }
+            em.flush();
+        } catch (PersistenceException e) {
+            if (DuplicateEmailException.isUniqueViolation(e)) {
+                throw new DuplicateEmailException(e);
+            }
+            throw e;
+        }
+        for (Member member : members) {
+            memberEventSrc.fire(member);
+        }
+    }
 }
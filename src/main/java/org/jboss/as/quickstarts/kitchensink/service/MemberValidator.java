@@ -0,0 +1,464 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2015, Red Hat, Inc. and/or its affiliates, and individual
+ * contributors by the @authors tag. See the copyright.txt in the
+ * distribution for a full listing of individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.as.quickstarts.kitchensink.service;
+
+import java.lang.annotation.Annotation;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.logging.Logger;
+import java.util.regex.Pattern;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.MessageInterpolator;
+import jakarta.validation.ValidationException;
+import jakarta.validation.Validator;
+import jakarta.validation.ValidatorFactory;
+import jakarta.validation.constraints.Digits;
+import jakarta.validation.constraints.Email;
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Size;
+import jakarta.validation.groups.Default;
+import jakarta.validation.metadata.BeanDescriptor;
+import jakarta.validation.metadata.ConstraintDescriptor;
+import jakarta.validation.metadata.PropertyDescriptor;
+
+import org.jboss.as.quickstarts.kitchensink.model.Member;
+
+/**
+ * Validates members against the Bean Validation constraints declared on {@link Member}, without going through the reflective
+ * Bean Validation pipeline.
+ * <p>
+ * The constraints are read from the Bean Validation metadata and compiled once, at startup: patterns are compiled, messages
+ * are interpolated, and the error map of every combination of violations is built up front. Validating a member then only
+ * runs the checks and returns one of these shared, immutable maps, field to message, as the REST API returns them. When a
+ * field breaks several constraints, the message of the first one is kept, not null constraints first.
+ * </p>
+ * <p>
+ * Emails the fast check cannot decide on, such as quoted local parts or IP address domains, are validated with Bean
+ * Validation. So is the whole member if Member declares a constraint this class does not know, such as a custom one.
+ * </p>
+ */
+@ApplicationScoped
+public class MemberValidator {
+
+    private static final int VALID = 0;
+
+    private static final int INVALID = 1;
+
+    private static final int UNDECIDED = 2;
+
+    // Above this number of violation combinations the error maps are not built up front
+    private static final int MAX_RESULTS = 4096;
+
+    private static final Map<String, Function<Member, Object>> PROPERTIES = Map.of(
+        "name", Member::getName,
+        "email", Member::getEmail,
+        "phoneNumber", Member::getPhoneNumber);
+
+    private static final Set<Class<? extends Annotation>> NULL_CHECKS = Set.of(NotNull.class, NotEmpty.class, NotBlank.class);
+
+    // The constraint of a field reported when it breaks several: missing values before malformed ones, then by type name
+    private static final Comparator<Class<? extends Annotation>> REPORTING_ORDER = Comparator
+        .comparing((Class<? extends Annotation> type) -> type != NotNull.class)
+        .thenComparing(type -> !NULL_CHECKS.contains(type))
+        .thenComparing(Class::getName);
+
+    // Characters allowed in the dot separated atoms of the local part of an email
+    private static final String LOCAL_PART_SPECIALS = "!#$%&'*+/=?^_`{|}~-";
+
+    @Inject
+    private Logger log;
+
+    @Inject
+    private ValidatorFactory validatorFactory;
+
+    @Inject
+    private Validator validator;
+
+    // Null when the constraints could not be compiled, Bean Validation is used instead
+    private Property[] properties;
+
+    private Map<String, String>[] results;
+
+    @PostConstruct
+    public void compile() {
+        try {
+            properties = compileProperties();
+            results = buildResults(properties);
+        } catch (UnsupportedConstraintException e) {
+            log.info("Validating members with Bean Validation: " + e.getMessage());
+            properties = null;
+            results = null;
+        }
+    }
+
+    /**
+     * Validates a member.
+     *
+     * @param member The member to validate
+     * @return The message of the violated constraint of each invalid field, or an empty map if the member is valid. The map
+     *         must not be modified.
+     */
+    public Map<String, String> validate(Member member) {
+        if (member == null) {
+            throw new IllegalArgumentException("The member to validate must not be null");
+        }
+        if (properties == null) {
+            return toErrorMap(validator.validate(member));
+        }
+        int result = 0;
+        for (Property property : properties) {
+            result = result * property.radix() + property.violated(member);
+        }
+        return results[result];
+    }
+
+    /**
+     * Maps each violated field to its message. When a field breaks several constraints, the message is the one
+     * {@link #validate(Member)} reports, whatever the order of the violations.
+     */
+    public static Map<String, String> toErrorMap(Set<? extends ConstraintViolation<?>> violations) {
+        Map<String, ConstraintViolation<?>> reported = new HashMap<>();
+        for (ConstraintViolation<?> violation : violations) {
+            reported.merge(violation.getPropertyPath().toString(), violation,
+                (first, other) -> REPORTING_ORDER.compare(typeOf(other), typeOf(first)) < 0 ? other : first);
+        }
+        Map<String, String> errors = new HashMap<>();
+        reported.forEach((property, violation) -> errors.put(property, violation.getMessage()));
+        return errors;
+    }
+
+    private static Class<? extends Annotation> typeOf(ConstraintViolation<?> violation) {
+        return violation.getConstraintDescriptor().getAnnotation().annotationType();
+    }
+
+    private Property[] compileProperties() {
+        BeanDescriptor bean = validator.getConstraintsForClass(Member.class);
+        if (!bean.getConstraintDescriptors().isEmpty()) {
+            throw new UnsupportedConstraintException("class level constraints");
+        }
+        MessageInterpolator interpolator = validatorFactory.getMessageInterpolator();
+        List<Property> compiled = new ArrayList<>();
+        for (PropertyDescriptor descriptor : bean.getConstrainedProperties()) {
+            String name = descriptor.getPropertyName();
+            Function<Member, Object> accessor = PROPERTIES.get(name);
+            if (accessor == null || descriptor.isCascaded() || descriptor.getElementClass() != String.class
+                || !descriptor.getConstrainedContainerElementTypes().isEmpty()) {
+                throw new UnsupportedConstraintException("property " + name);
+            }
+            List<Check> checks = new ArrayList<>();
+            for (ConstraintDescriptor<?> constraint : descriptor.getConstraintDescriptors()) {
+                if (constraint.getGroups().contains(Default.class)) {
+                    checks.add(compileCheck(name, constraint, interpolator));
+                }
+            }
+            if (!checks.isEmpty()) {
+                checks.sort(Comparator.comparing(Check::getType, REPORTING_ORDER));
+                compiled.add(new Property(name, accessor, checks.toArray(new Check[0])));
+            }
+        }
+        compiled.sort(Comparator.comparing(Property::getName));
+        return compiled.toArray(new Property[0]);
+    }
+
+    private Check compileCheck(String property, ConstraintDescriptor<?> constraint, MessageInterpolator interpolator) {
+        Annotation annotation = constraint.getAnnotation();
+        if (!constraint.getComposingConstraints().isEmpty() || constraint.getMessageTemplate().contains("${")) {
+            throw new UnsupportedConstraintException(annotation + " on " + property);
+        }
+        String message = interpolator.interpolate(constraint.getMessageTemplate(), new MessageInterpolator.Context() {
+            @Override
+            public ConstraintDescriptor<?> getConstraintDescriptor() {
+                return constraint;
+            }
+
+            @Override
+            public Object getValidatedValue() {
+                return null;
+            }
+
+            @Override
+            public <T> T unwrap(Class<T> type) {
+                throw new ValidationException("Unsupported type " + type);
+            }
+        });
+        Class<? extends Annotation> type = annotation.annotationType();
+
+        if (annotation instanceof NotNull) {
+            return new Check(type, message, value -> value != null ? VALID : INVALID);
+        }
+        if (annotation instanceof NotEmpty) {
+            return new Check(type, message, value -> value != null && !value.isEmpty() ? VALID : INVALID);
+        }
+        if (annotation instanceof NotBlank) {
+            return new Check(type, message, value -> value != null && !value.trim().isEmpty() ? VALID : INVALID);
+        }
+        if (annotation instanceof Size) {
+            int min = ((Size) annotation).min();
+            int max = ((Size) annotation).max();
+            return new Check(type, message,
+                value -> value == null || value.length() >= min && value.length() <= max ? VALID : INVALID);
+        }
+        if (annotation instanceof jakarta.validation.constraints.Pattern) {
+            Pattern pattern = compilePattern(((jakarta.validation.constraints.Pattern) annotation).regexp(),
+                ((jakarta.validation.constraints.Pattern) annotation).flags());
+            return new Check(type, message,
+                value -> value == null || pattern.matcher(value).matches() ? VALID : INVALID);
+        }
+        if (annotation instanceof Email && ".*".equals(((Email) annotation).regexp())) {
+            return new Check(type, message, MemberValidator::checkEmail);
+        }
+        if (annotation instanceof Digits) {
+            int integer = ((Digits) annotation).integer();
+            int fraction = ((Digits) annotation).fraction();
+            return new Check(type, message, value -> checkDigits(value, integer, fraction));
+        }
+        throw new UnsupportedConstraintException(annotation + " on " + property);
+    }
+
+    private static Pattern compilePattern(String regexp, jakarta.validation.constraints.Pattern.Flag[] flags) {
+        int bits = 0;
+        for (jakarta.validation.constraints.Pattern.Flag flag : flags) {
+            bits |= flag.getValue();
+        }
+        return Pattern.compile(regexp, bits);
+    }
+
+    /**
+     * Accepts the common email shape, dot separated atoms of letters, digits and the allowed special characters, at a domain
+     * made of valid host name labels, and rejects values without any @. Anything else is left to Bean Validation.
+     */
+    private static int checkEmail(String value) {
+        if (value == null || value.isEmpty()) {
+            return VALID;
+        }
+        int at = value.lastIndexOf('@');
+        if (at < 0) {
+            return INVALID;
+        }
+        if (at == 0 || at > 64 || value.length() - at - 1 > 255) {
+            return UNDECIDED;
+        }
+        char previous = '.';
+        for (int i = 0; i < at; i++) {
+            char c = value.charAt(i);
+            if (c == '.') {
+                if (previous == '.') {
+                    return UNDECIDED;
+                }
+            } else if (!isAsciiLetterOrDigit(c) && LOCAL_PART_SPECIALS.indexOf(c) < 0) {
+                return UNDECIDED;
+            }
+            previous = c;
+        }
+        if (previous == '.') {
+            return UNDECIDED;
+        }
+        int labelStart = at + 1;
+        for (int i = labelStart; i <= value.length(); i++) {
+            if (i == value.length() || value.charAt(i) == '.') {
+                int length = i - labelStart;
+                if (length == 0 || length > 63 || value.charAt(labelStart) == '-' || value.charAt(i - 1) == '-') {
+                    return UNDECIDED;
+                }
+                labelStart = i + 1;
+            } else if (!isAsciiLetterOrDigit(value.charAt(i)) && value.charAt(i) != '-') {
+                return UNDECIDED;
+            }
+        }
+        return VALID;
+    }
+
+    /**
+     * Counts the integer digits of plain digit strings directly, and goes through BigDecimal as Bean Validation does for
+     * any other value.
+     */
+    private static int checkDigits(String value, int integer, int fraction) {
+        if (value == null) {
+            return VALID;
+        }
+        int leadingZeros = 0;
+        boolean plain = !value.isEmpty();
+        for (int i = 0; i < value.length() && plain; i++) {
+            char c = value.charAt(i);
+            if (c == '0' && leadingZeros == i) {
+                leadingZeros++;
+            } else if (c < '0' || c > '9') {
+                plain = false;
+            }
+        }
+        if (plain) {
+            return Math.max(1, value.length() - leadingZeros) <= integer ? VALID : INVALID;
+        }
+        try {
+            BigDecimal number = new BigDecimal(value);
+            int integerLength = number.precision() - number.scale();
+            int fractionLength = number.scale() < 0 ? 0 : number.scale();
+            return integerLength <= integer && fractionLength <= fraction ? VALID : INVALID;
+        } catch (NumberFormatException e) {
+            return INVALID;
+        }
+    }
+
+    private static boolean isAsciiLetterOrDigit(char c) {
+        return c >= 'a' && c <= 'z' || c >= 'A' && c <= 'Z' || c >= '0' && c <= '9';
+    }
+
+    @SuppressWarnings({ "unchecked", "rawtypes" })
+    private static Map<String, String>[] buildResults(Property[] properties) {
+        int count = 1;
+        for (Property property : properties) {
+            count *= property.radix();
+            if (count > MAX_RESULTS) {
+                throw new UnsupportedConstraintException("too many constraints");
+            }
+        }
+        Map<String, String>[] results = new Map[count];
+        for (int result = 0; result < count; result++) {
+            Map<String, String> errors = new HashMap<>();
+            int remainder = result;
+            for (int i = properties.length - 1; i >= 0; i--) {
+                int violated = remainder % properties[i].radix();
+                remainder /= properties[i].radix();
+                if (violated > 0) {
+                    errors.put(properties[i].getName(), properties[i].getChecks()[violated - 1].getMessage());
+                }
+            }
+            results[result] = errors.isEmpty() ? Map.of() : Collections.unmodifiableMap(errors);
+        }
+        return results;
+    }
+
+    /**
+     * A constrained property and its checks, in reporting order.
+     */
+    private class Property {
+
+        private final String name;
+
+        private final Function<Member, Object> accessor;
+
+        private final Check[] checks;
+
+        Property(String name, Function<Member, Object> accessor, Check[] checks) {
+            this.name = name;
+            this.accessor = accessor;
+            this.checks = checks;
+        }
+
+        String getName() {
+            return name;
+        }
+
+        Check[] getChecks() {
+            return checks;
+        }
+
+        int radix() {
+            return checks.length + 1;
+        }
+
+        /**
+         * @return 0 if the value is valid, else the 1 based index of the first violated check
+         */
+        int violated(Member member) {
+            String value = (String) accessor.apply(member);
+            for (int i = 0; i < checks.length; i++) {
+                int outcome = checks[i].test(value);
+                if (outcome == INVALID) {
+                    return i + 1;
+                }
+                if (outcome == UNDECIDED) {
+                    return violatedByBeanValidation(value);
+                }
+            }
+            return 0;
+        }
+
+        private int violatedByBeanValidation(String value) {
+            int first = 0;
+            for (ConstraintViolation<Member> violation : validator.validateValue(Member.class, name, value)) {
+                Class<?> type = violation.getConstraintDescriptor().getAnnotation().annotationType();
+                for (int i = 0; i < checks.length; i++) {
+                    if (checks[i].getType() == type && (first == 0 || i + 1 < first)) {
+                        first = i + 1;
+                    }
+                }
+            }
+            return first;
+        }
+    }
+
+    /**
+     * One compiled constraint.
+     */
+    private static class Check {
+
+        private final Class<? extends Annotation> type;
+
+        private final String message;
+
+        private final ValueCheck check;
+
+        Check(Class<? extends Annotation> type, String message, ValueCheck check) {
+            this.type = type;
+            this.message = message;
+            this.check = check;
+        }
+
+        Class<? extends Annotation> getType() {
+            return type;
+        }
+
+        String getMessage() {
+            return message;
+        }
+
+        int test(String value) {
+            return check.test(value);
+        }
+    }
+
+    @FunctionalInterface
+    private interface ValueCheck {
+        /**
+         * @return {@link MemberValidator#VALID}, {@link MemberValidator#INVALID} or {@link MemberValidator#UNDECIDED}
+         */
+        int test(String value);
+    }
+
+    private static class UnsupportedConstraintException extends RuntimeException {
+
+        private static final long serialVersionUID = 1L;
+
+        UnsupportedConstraintException(String message) {
+            super(message);
+        }
+    }
+}
@@ -0,0 +1,302 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2015, Red Hat, Inc. and/or its affiliates, and individual
+ * contributors by the @authors tag. See the copyright.txt in the
+ * distribution for a full listing of individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.as.quickstarts.kitchensink.service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.annotation.Resource;
+import jakarta.enterprise.concurrent.ManagedThreadFactory;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+
+import org.jboss.as.quickstarts.kitchensink.data.EmailFilter;
+import org.jboss.as.quickstarts.kitchensink.model.Member;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * Write-behind queue of registrations, enabled by setting the <code>kitchensink.registration.queue</code> system property to
+ * its capacity. Each registration is otherwise its own transaction, so at peak sign-up rates the database spends its time
+ * committing; here a single writer thread drains the queue and stores the waiting members with
+ * {@link MemberRegistration#registerAll(List)}, many per transaction and so per commit.
+ * <p>
+ * The email of a queued member is reserved until it is stored, and checked against {@link EmailFilter}, so a duplicate is
+ * refused when the member is submitted. Should a batch still fail, because another server registered one of its emails,
+ * its members are stored one by one to find out which ones fail, as bulk registrations do.
+ * </p>
+ * <p>
+ * A batch is written as soon as the previous one has committed, with the members that arrived meanwhile, up to
+ * <code>kitchensink.registration.batch</code> members (200 by default); the writer waits up to
+ * <code>kitchensink.registration.linger</code> milliseconds (2 by default) for more members before writing a batch that is
+ * not full. When the queue is full, members are refused rather than waited for. By default callers get the outcome of a
+ * registration once it has committed; with <code>kitchensink.registration.ackOnEnqueue</code> set to true, REST clients are
+ * answered as soon as the member is queued, and members lost to a crash or to a failed write are only logged and counted.
+ * On undeployment, the queue is drained before the writer stops. Every queued registration completes: the members the writer
+ * could not store, because it failed, was interrupted or had not drained the queue in time, fail with the cause, and their
+ * emails are released.
+ * </p>
+ */
+@ApplicationScoped
+public class RegistrationQueue {
+
+    // How long undeployment waits for the queue to be drained
+    private static final long DRAIN_TIMEOUT_SECONDS = 30;
+
+    private final int capacity = Integer.getInteger("kitchensink.registration.queue", 0);
+
+    private final int batchSize = Integer.getInteger("kitchensink.registration.batch", 200);
+
+    private final long linger = TimeUnit.MILLISECONDS.toNanos(Integer.getInteger("kitchensink.registration.linger", 2));
+
+    private final boolean ackOnEnqueue = Boolean.getBoolean("kitchensink.registration.ackOnEnqueue");
+
+    @Inject
+    private Logger log;
+
+    @Inject
+    private MemberRegistration registration;
+
+    @Inject
+    private EmailFilter emailFilter;
+
+    @Inject
+    private MeterRegistry registry;
+
+    @Resource
+    private ManagedThreadFactory threadFactory;
+
+    // Emails of the members queued or being written
+    private final Set<String> reservedEmails = ConcurrentHashMap.newKeySet();
+
+    private BlockingQueue<Pending> queue;
+
+    private Thread writer;
+
+    private volatile boolean running;
+
+    private DistributionSummary batchSizes;
+
+    private Counter failed;
+
+    @PostConstruct
+    public void start() {
+        if (capacity <= 0) {
+            return;
+        }
+        queue = new ArrayBlockingQueue<>(capacity);
+        batchSizes = DistributionSummary.builder("kitchensink.registration.batch.size")
+            .description("Members stored per transaction by the registration queue")
+            .register(registry);
+        failed = registry.counter("kitchensink.registration.failed");
+        Gauge.builder("kitchensink.registration.queued", queue, BlockingQueue::size).register(registry);
+
+        running = true;
+        writer = threadFactory.newThread(this::drain);
+        writer.start();
+        log.info("Registrations are queued, " + capacity + " at most, and acknowledged once "
+            + (ackOnEnqueue ? "queued" : "committed"));
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (writer == null) {
+            return;
+        }
+        running = false;
+        try {
+            writer.join(TimeUnit.SECONDS.toMillis(DRAIN_TIMEOUT_SECONDS));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (writer.isAlive()) {
+            // Fails the batch it is waiting for, if any
+            writer.interrupt();
+        }
+        failQueued(new RejectedExecutionException("Registration queue stopped"));
+    }
+
+    /**
+     * @return True if registrations go through the queue
+     */
+    public boolean isEnabled() {
+        return queue != null;
+    }
+
+    /**
+     * @return True if registrations are acknowledged as soon as they are queued, rather than once committed
+     */
+    public boolean isAckOnEnqueue() {
+        return ackOnEnqueue;
+    }
+
+    /**
+     * Queues a validated member for registration.
+     *
+     * @param member The member to register, already validated
+     * @return Completed with the member once stored, or with the exception that prevented it
+     * @throws DuplicateEmailException If the email is already registered, or queued with another member
+     * @throws RejectedExecutionException If the queue is full
+     */
+    public CompletionStage<Member> submit(Member member) {
+        String email = member.getEmail();
+        if (!reservedEmails.add(email)) {
+            throw new DuplicateEmailException(email, null);
+        }
+        try {
+            if (emailFilter.isTaken(email)) {
+                throw new DuplicateEmailException(email, null);
+            }
+            Pending pending = new Pending(member);
+            if (!running || !queue.offer(pending)) {
+                throw new RejectedExecutionException("Registration queue full");
+            }
+            // Stopped meanwhile, unless the remaining members were already failed or drained
+            if (!running && queue.remove(pending)) {
+                throw new RejectedExecutionException("Registration queue stopped");
+            }
+            return pending.result;
+        } catch (RuntimeException e) {
+            reservedEmails.remove(email);
+            throw e;
+        }
+    }
+
+    // Runs on the writer thread until the application stops, then until the queue is empty
+    private void drain() {
+        List<Pending> batch = new ArrayList<>(batchSize);
+        while (running || !queue.isEmpty()) {
+            try {
+                Pending first = queue.poll(100, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                queue.drainTo(batch, batchSize - batch.size());
+                long deadline = System.nanoTime() + linger;
+                while (batch.size() < batchSize) {
+                    Pending next = queue.poll(deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+                    if (next == null) {
+                        break;
+                    }
+                    batch.add(next);
+                    queue.drainTo(batch, batchSize - batch.size());
+                }
+                write(batch);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                running = false;
+                RejectedExecutionException stopped = new RejectedExecutionException("Registration writer interrupted");
+                fail(batch, stopped);
+                failQueued(stopped);
+                return;
+            } catch (RuntimeException e) {
+                log.log(Level.SEVERE, "Registration writer failed", e);
+                fail(batch, e);
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    private void write(List<Pending> batch) {
+        List<Member> members = new ArrayList<>(batch.size());
+        for (Pending pending : batch) {
+            members.add(pending.member);
+        }
+        batchSizes.record(batch.size());
+        try {
+            registration.registerAll(members);
+            for (Pending pending : batch) {
+                pending.complete(null);
+            }
+        } catch (Exception e) {
+            // The batch was rolled back, typically because one of the emails was registered on another server. Store its
+            // members one by one to find out which of them failed.
+            log.fine("Queued registrations failed, retrying members one by one: " + e.getMessage());
+            for (Pending pending : batch) {
+                // Forget the id assigned by the rolled back attempt
+                pending.member.setId(null);
+                try {
+                    registration.register(pending.member);
+                    pending.complete(null);
+                } catch (Exception failure) {
+                    pending.complete(failure);
+                }
+            }
+        }
+    }
+
+    // Completes the registrations the writer did not, those already completed are left as they are
+    private void fail(List<Pending> batch, Exception failure) {
+        for (Pending pending : batch) {
+            pending.complete(failure);
+        }
+    }
+
+    // Once the writer is stopped, fails the registrations still queued
+    private void failQueued(Exception failure) {
+        List<Pending> remaining = new ArrayList<>();
+        queue.drainTo(remaining);
+        if (!remaining.isEmpty()) {
+            log.warning(remaining.size() + " queued registrations were not stored");
+            fail(remaining, failure);
+        }
+    }
+
+    private final class Pending {
+
+        private final Member member;
+
+        private final CompletableFuture<Member> result = new CompletableFuture<>();
+
+        private Pending(Member member) {
+            this.member = member;
+        }
+
+        private synchronized void complete(Exception failure) {
+            if (result.isDone()) {
+                return;
+            }
+            reservedEmails.remove(member.getEmail());
+            if (failure == null) {
+                result.complete(member);
+                return;
+            }
+            failed.increment();
+            if (ackOnEnqueue) {
+                log.log(Level.WARNING, "Queued registration of " + member.getEmail() + " failed", failure);
+            }
+            result.completeExceptionally(failure);
+        }
+    }
+}
@@ -0,0 +1,40 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2015, Red Hat, Inc. and/or its affiliates, and individual
+ * contributors by the @authors tag. See the copyright.txt in the
+ * distribution for a full listing of individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.as.quickstarts.kitchensink.service;
+
+import jakarta.ejb.ApplicationException;
+
+/**
+ * Thrown when a member cannot be modified because it is not in the version the caller expects: the caller read an older
+ * version, or another modification committed first. The caller should read the member again before retrying.
+ * <p>
+ * This is an application exception, so it reaches the caller as is rather than wrapped in an EJBException, and the
+ * transaction is rolled back.
+ * </p>
+ */
+@SuppressWarnings("serial")
+@ApplicationException(rollback = true)
+public class StaleMemberException extends RuntimeException {
+
+    public StaleMemberException(long id, Throwable cause) {
+        super("Member " + id + " was modified concurrently", cause);
+    }
+
+    public StaleMemberException(long id, Long version) {
+        super("Member " + id + " is at version " + version);
+    }
+}
@@ -0,0 +1,178 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2015, Red Hat, Inc. and/or its affiliates, and individual
+ * contributors by the @authors tag. See the copyright.txt in the
+ * distribution for a full listing of individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.as.quickstarts.kitchensink.service;
+
+import java.lang.management.ManagementFactory;
+import java.time.Instant;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.Resource;
+import jakarta.ejb.ConcurrencyManagement;
+import jakarta.ejb.ConcurrencyManagementType;
+import jakarta.ejb.Singleton;
+import jakarta.ejb.Startup;
+import jakarta.enterprise.concurrent.ManagedExecutorService;
+import jakarta.inject.Inject;
+
+import org.jboss.as.quickstarts.kitchensink.data.EmailFilter;
+import org.jboss.as.quickstarts.kitchensink.data.MemberCursor;
+import org.jboss.as.quickstarts.kitchensink.data.MemberListView;
+import org.jboss.as.quickstarts.kitchensink.data.MemberRepository;
+import org.jboss.as.quickstarts.kitchensink.model.Member;
+import org.jboss.as.quickstarts.kitchensink.model.MemberSummary;
+import org.jboss.as.quickstarts.kitchensink.util.ReadRouting;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.TimeGauge;
+
+/**
+ * Warms the application up as soon as it is deployed, so that the first requests do not pay for lazy initialization: the
+ * validator is compiled, every query is run once, which fills the query plan cache and the connection pools, the most
+ * recently registered members are loaded into the second-level cache, and the in-memory member list and email filter are
+ * built. The listings and searches, which read from the replica unless the primary is required, are run against each of
+ * them, the other queries against the primary they always read from. Until the member list and email filter are built,
+ * requests read the members and check the emails in the database.
+ * <p>
+ * The warm-up runs in the background, and the application only reports itself as ready once it is done, see
+ * <code>/rest/ready</code>. The duration of each phase is logged, and exposed as the
+ * <code>kitchensink.startup.duration</code> metric; the <code>boot</code> phase is the time from the start of the JVM to the
+ * deployment of the application, including the start of the persistence units. The number of members preloaded in the
+ * cache is read from the <code>kitchensink.warmup.members</code> system property.
+ * </p>
+ */
+@Singleton
+@Startup
+@ConcurrencyManagement(ConcurrencyManagementType.BEAN)
+public class Warmup {
+
+    private static final int PRELOADED_MEMBERS = Integer.getInteger("kitchensink.warmup.members", 1000);
+
+    @Inject
+    private Logger log;
+
+    @Inject
+    private MemberValidator memberValidator;
+
+    @Inject
+    private MemberRepository repository;
+
+    @Inject
+    private ReadRouting readRouting;
+
+    @Inject
+    private MemberListView memberListView;
+
+    @Inject
+    private EmailFilter emailFilter;
+
+    @Inject
+    private MeterRegistry registry;
+
+    @Resource
+    private ManagedExecutorService executor;
+
+    // Phase durations in milliseconds, in the order they ran
+    private final Map<String, Long> phases = new LinkedHashMap<>();
+
+    private volatile boolean ready;
+
+    @PostConstruct
+    public void start() {
+        phases.put("boot", ManagementFactory.getRuntimeMXBean().getUptime());
+        executor.execute(this::warmUp);
+    }
+
+    /**
+     * @return True once the warm-up is over, successful or not
+     */
+    public boolean isReady() {
+        return ready;
+    }
+
+    /**
+     * @return The duration of each startup phase in milliseconds, empty until the warm-up is over
+     */
+    public Map<String, Long> getPhases() {
+        return ready ? Collections.unmodifiableMap(phases) : Map.of();
+    }
+
+    private void warmUp() {
+        long start = System.nanoTime();
+        try {
+            time("validation", this::validate);
+            time("queries", this::query);
+            time("cache", () -> repository.findLatest(PRELOADED_MEMBERS));
+            time("view", memberListView::load);
+            time("emails", emailFilter::load);
+            phases.put("warmup", TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+            log.info("Warm-up completed, startup phases in milliseconds: " + phases);
+        } catch (RuntimeException e) {
+            // A cold application still serves requests, so it is ready anyway
+            log.log(Level.WARNING, "Warm-up failed after " + phases, e);
+        } finally {
+            for (Map.Entry<String, Long> phase : phases.entrySet()) {
+                TimeGauge.builder("kitchensink.startup.duration", phase::getValue, TimeUnit.MILLISECONDS)
+                    .tag("phase", phase.getKey())
+                    .description("Duration of a startup phase")
+                    .register(registry);
+            }
+            ready = true;
+        }
+    }
+
+    private void time(String phase, Runnable work) {
+        long start = System.nanoTime();
+        work.run();
+        phases.put(phase, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+    }
+
+    private void validate() {
+        Member member = new Member();
+        member.setName("Warm Up");
+        member.setEmail("warm.up@example.org");
+        member.setPhoneNumber("2125551212");
+        memberValidator.validate(member);
+        // Also goes through the error messages
+        memberValidator.validate(new Member());
+    }
+
+    private void query() {
+        readRouting.callWith(false, this::queryReader);
+        readRouting.callWith(true, this::queryReader);
+        repository.findPageAfterId(0, 1);
+        repository.findPageChangedAfter(Instant.EPOCH, 0, 1);
+        repository.findExistingEmails(Set.of("warm.up@example.org"));
+    }
+
+    // The queries reading from the replica or from the primary, depending on the routing
+    private Void queryReader() {
+        for (MemberSummary member : repository.findPageOrderedByName(null, 1)) {
+            repository.findPageOrderedByName(MemberCursor.after(member), 1);
+            repository.findPageBeforeOrderedByName(MemberCursor.before(member), 1);
+        }
+        repository.searchByPrefix("warm", 1);
+        repository.count();
+        return null;
+    }
+}
@@ -0,0 +1,113 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2015, Red Hat, Inc. and/or its affiliates, and individual
+ * contributors by the @authors tag. See the copyright.txt in the
+ * distribution for a full listing of individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.as.quickstarts.kitchensink.util;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Logger;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.annotation.Resource;
+import jakarta.enterprise.concurrent.ManagedThreadFactory;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+
+/**
+ * Bounded executor used to deliver asynchronous CDI events. It runs a fixed number of container managed threads in front of a
+ * bounded queue, so slow observers cannot pile up unbounded work, and in the common case do not slow down the code firing
+ * the events.
+ * <p>
+ * No notification is ever dropped, as the state of the observers depends on every one of them. When the queue is full, such
+ * as when a bulk registration commits hundreds of members at once, the notification runs on the thread firing the event
+ * instead, which slows the producer down to the pace of the observers. These notifications are counted. The thread and queue
+ * sizes are read from the <code>kitchensink.events.threads</code> and <code>kitchensink.events.queue</code> system
+ * properties.
+ * </p>
+ */
+@ApplicationScoped
+public class AsyncEventExecutor implements Executor {
+
+    @Inject
+    private Logger log;
+
+    @Resource
+    private ManagedThreadFactory threadFactory;
+
+    private final AtomicLong callerRuns = new AtomicLong();
+
+    private ThreadPoolExecutor executor;
+
+    @PostConstruct
+    public void start() {
+        int threads = Integer.getInteger("kitchensink.events.threads", 2);
+        int queueCapacity = Integer.getInteger("kitchensink.events.queue", 1000);
+        RejectedExecutionHandler onRejected = (task, pool) -> {
+            if (pool.isShutdown()) {
+                // Undeployed, the observers are gone
+                log.fine("Event executor stopped, notification not delivered");
+                return;
+            }
+            callerRuns.incrementAndGet();
+            task.run();
+        };
+        executor = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+            new ArrayBlockingQueue<>(queueCapacity), threadFactory, onRejected);
+    }
+
+    @PreDestroy
+    public void stop() {
+        executor.shutdown();
+    }
+
+    @Override
+    public void execute(Runnable task) {
+        executor.execute(task);
+    }
+
+    /**
+     * @return The number of notifications waiting for a thread
+     */
+    public int getQueueSize() {
+        return executor.getQueue().size();
+    }
+
+    /**
+     * @return The number of threads currently notifying observers
+     */
+    public int getActiveCount() {
+        return executor.getActiveCount();
+    }
+
+    /**
+     * @return The number of notifications delivered so far
+     */
+    public long getCompletedCount() {
+        return executor.getCompletedTaskCount();
+    }
+
+    /**
+     * @return The number of notifications run so far on the thread firing the event, because the queue was full
+     */
+    public long getCallerRunsCount() {
+        return callerRuns.get();
+    }
+}
@@ -0,0 +1,182 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2015, Red Hat, Inc. and/or its affiliates, and individual
+ * contributors by the @authors tag. See the copyright.txt in the
+ * distribution for a full listing of individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.as.quickstarts.kitchensink.util;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A counting Bloom filter of strings: it tells whether a string may have been added, with no false negatives and a false
+ * positive rate set when it is created, in a fixed amount of memory whatever the length of the strings. Unlike a plain
+ * Bloom filter, strings can also be removed.
+ * <p>
+ * Each string sets <em>k</em> of <em>m</em> 4-bit counters, sixteen to a <code>long</code>, chosen by double hashing of a
+ * 64-bit hash of the string. A string may have been added if all its counters are above zero. A counter reaching 15 stays
+ * there, so removals can never bring it down to zero by mistake; it only makes false positives a little more likely.
+ * Counters are updated with compare-and-set, so the filter can be read and updated concurrently without locking.
+ * </p>
+ * <p>
+ * Removing a string that was never added would decrement counters set by other strings, and could then make them appear
+ * absent: callers must only remove strings they added.
+ * </p>
+ */
+public final class CountingBloomFilter {
+
+    private static final int COUNTER_BITS = 4;
+
+    private static final int COUNTERS_PER_WORD = Long.SIZE / COUNTER_BITS;
+
+    private static final long MAX_COUNT = (1L << COUNTER_BITS) - 1;
+
+    private final AtomicLongArray words;
+
+    private final long counters;
+
+    private final int hashes;
+
+    private final AtomicLong size = new AtomicLong();
+
+    /**
+     * Creates a filter sized for the given number of strings.
+     *
+     * @param capacity The number of strings the filter is expected to hold
+     * @param falsePositiveRate The rate of false positives once it holds that many strings, between 0 and 1
+     */
+    public CountingBloomFilter(long capacity, double falsePositiveRate) {
+        if (capacity < 1 || falsePositiveRate <= 0 || falsePositiveRate >= 1) {
+            throw new IllegalArgumentException("Invalid capacity " + capacity + " or false positive rate " + falsePositiveRate);
+        }
+        // m = -n ln p / (ln 2)^2 counters, k = m / n ln 2 hash functions
+        long m = (long) Math.ceil(-capacity * Math.log(falsePositiveRate) / (Math.log(2) * Math.log(2)));
+        int wordCount = Math.toIntExact((m + COUNTERS_PER_WORD - 1) / COUNTERS_PER_WORD);
+        words = new AtomicLongArray(wordCount);
+        counters = (long) wordCount * COUNTERS_PER_WORD;
+        hashes = Math.max(1, (int) Math.round((double) m / capacity * Math.log(2)));
+    }
+
+    /**
+     * @return True if the string may have been added, false if it certainly was not
+     */
+    public boolean mightContain(String value) {
+        long hash = hash(value);
+        int h1 = (int) hash;
+        int h2 = (int) (hash >>> 32);
+        for (int i = 0; i < hashes; i++) {
+            long index = index(h1, h2, i);
+            if (count(words.get(word(index)), index) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public void add(String value) {
+        long hash = hash(value);
+        int h1 = (int) hash;
+        int h2 = (int) (hash >>> 32);
+        for (int i = 0; i < hashes; i++) {
+            update(index(h1, h2, i), 1);
+        }
+        size.incrementAndGet();
+    }
+
+    /**
+     * Removes a string previously added.
+     */
+    public void remove(String value) {
+        long hash = hash(value);
+        int h1 = (int) hash;
+        int h2 = (int) (hash >>> 32);
+        for (int i = 0; i < hashes; i++) {
+            update(index(h1, h2, i), -1);
+        }
+        size.decrementAndGet();
+    }
+
+    private void update(long index, int delta) {
+        int word = word(index);
+        int shift = shift(index);
+        long current;
+        long count;
+        do {
+            current = words.get(word);
+            count = (current >>> shift) & MAX_COUNT;
+            // A saturated counter no longer knows how many strings set it
+            if (count == MAX_COUNT || count == 0 && delta < 0) {
+                return;
+            }
+        } while (!words.compareAndSet(word, current, current + ((long) delta << shift)));
+    }
+
+    /**
+     * @return The number of strings added and not removed since
+     */
+    public long size() {
+        return size.get();
+    }
+
+    /**
+     * @return The false positive rate expected for the number of strings the filter holds
+     */
+    public double expectedFalsePositiveRate() {
+        double n = Math.max(0, size.get());
+        return Math.pow(1 - Math.exp(-hashes * n / counters), hashes);
+    }
+
+    /**
+     * @return The number of bytes taken by the counters
+     */
+    public long memoryBytes() {
+        return (long) words.length() * Long.BYTES;
+    }
+
+    public int hashFunctions() {
+        return hashes;
+    }
+
+    // Kirsch-Mitzenmacher: the i-th hash function is h1 + i * h2
+    private long index(int h1, int h2, int i) {
+        return Math.floorMod(h1 + (long) i * h2, counters);
+    }
+
+    private static int word(long index) {
+        return (int) (index / COUNTERS_PER_WORD);
+    }
+
+    private static int shift(long index) {
+        return (int) (index % COUNTERS_PER_WORD) * COUNTER_BITS;
+    }
+
+    private static long count(long word, long index) {
+        return (word >>> shift(index)) & MAX_COUNT;
+    }
+
+    // 64-bit FNV-1a of the characters, then the MurmurHash3 finalizer to spread the bits over both halves
+    private static long hash(String value) {
+        long hash = 0xcbf29ce484222325L;
+        for (int i = 0; i < value.length(); i++) {
+            hash ^= value.charAt(i);
+            hash *= 0x100000001b3L;
+        }
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb93fe1a4fe53L;
+        hash ^= hash >>> 33;
+        return hash;
+    }
+}
@@ -0,0 +1,196 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2015, Red Hat, Inc. and/or its affiliates, and individual
+ * contributors by the @authors tag. See the copyright.txt in the
+ * distribution for a full listing of individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.as.quickstarts.kitchensink.util;
+
+import java.lang.management.ManagementFactory;
+import java.lang.reflect.Method;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.logging.Logger;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.inject.Produces;
+import jakarta.inject.Inject;
+import jakarta.persistence.EntityManagerFactory;
+
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.jvm.JvmGcMetrics;
+import io.micrometer.core.instrument.binder.jvm.JvmMemoryMetrics;
+import io.micrometer.core.instrument.binder.jvm.JvmThreadMetrics;
+import io.micrometer.core.instrument.binder.system.ProcessorMetrics;
+import io.micrometer.prometheus.PrometheusConfig;
+import io.micrometer.prometheus.PrometheusMeterRegistry;
+
+/**
+ * Owns the application meter registry, in the Prometheus format, and registers the gauges reporting the state of the JVM, of
+ * the persistence unit, of the datasource connection pool and of the event executor.
+ *
+ * <p>
+ * Example injection on a managed bean field:
+ * </p>
+ *
+ * <pre>
+ * &#064;Inject
+ * private MeterRegistry registry;
+ * </pre>
+ */
+@ApplicationScoped
+public class Metrics {
+
+    // Matches the connection pool statistics of the datasource deployed with the application
+    private static final String POOL_STATISTICS = "jboss.as:subsystem=datasources,statistics=pool,*";
+
+    private static final String DATASOURCE = "KitchensinkQuickstartDS";
+
+    @Inject
+    private Logger log;
+
+    @Inject
+    private EntityManagerFactory emf;
+
+    @Inject
+    private AsyncEventExecutor eventExecutor;
+
+    private final PrometheusMeterRegistry registry = new PrometheusMeterRegistry(PrometheusConfig.DEFAULT);
+
+    private final Map<Method, Timer> methodTimers = new ConcurrentHashMap<>();
+
+    private JvmGcMetrics gcMetrics;
+
+    private ObjectName poolStatistics;
+
+    @PostConstruct
+    public void bind() {
+        new JvmMemoryMetrics().bindTo(registry);
+        new JvmThreadMetrics().bindTo(registry);
+        new ProcessorMetrics().bindTo(registry);
+        gcMetrics = new JvmGcMetrics();
+        gcMetrics.bindTo(registry);
+
+        Statistics statistics = emf.unwrap(SessionFactory.class).getStatistics();
+        Gauge.builder("kitchensink.persistence.sessions.open", statistics,
+                s -> s.getSessionOpenCount() - s.getSessionCloseCount())
+            .description("Entity managers currently open")
+            .register(registry);
+        FunctionCounter.builder("kitchensink.persistence.connections.obtained", statistics, Statistics::getConnectCount)
+            .description("JDBC connections obtained by entity managers")
+            .register(registry);
+        FunctionCounter.builder("kitchensink.persistence.transactions", statistics, Statistics::getTransactionCount)
+            .register(registry);
+        FunctionCounter.builder("kitchensink.persistence.statements.prepared", statistics,
+                Statistics::getPrepareStatementCount)
+            .register(registry);
+        FunctionCounter.builder("kitchensink.persistence.cache.hits", statistics, Statistics::getSecondLevelCacheHitCount)
+            .register(registry);
+        FunctionCounter.builder("kitchensink.persistence.cache.misses", statistics,
+                Statistics::getSecondLevelCacheMissCount)
+            .register(registry);
+
+        for (String attribute : new String[] { "ActiveCount", "AvailableCount", "InUseCount", "WaitCount" }) {
+            Gauge.builder("kitchensink.datasource.pool", this, m -> m.readPoolStatistic(attribute))
+                .tag("statistic", attribute)
+                .description("Connection pool statistics of the datasource, when its statistics are enabled")
+                .register(registry);
+        }
+
+        Gauge.builder("kitchensink.events.queued", eventExecutor, AsyncEventExecutor::getQueueSize)
+            .register(registry);
+        Gauge.builder("kitchensink.events.active", eventExecutor, AsyncEventExecutor::getActiveCount)
+            .register(registry);
+        FunctionCounter.builder("kitchensink.events.delivered", eventExecutor, AsyncEventExecutor::getCompletedCount)
+            .register(registry);
+        FunctionCounter.builder("kitchensink.events.caller.runs", eventExecutor, AsyncEventExecutor::getCallerRunsCount)
+            .description("Notifications run on the thread firing the event as the queue was full")
+            .register(registry);
+    }
+
+    @PreDestroy
+    public void close() {
+        gcMetrics.close();
+        registry.close();
+    }
+
+    @Produces
+    public MeterRegistry getRegistry() {
+        return registry;
+    }
+
+    /**
+     * @return All the meters in the Prometheus text format
+     */
+    public String scrape() {
+        return registry.scrape();
+    }
+
+    /**
+     * Returns the timer recording the invocations of a method bound with {@link Timed}. The timer publishes a histogram, so
+     * percentiles can be aggregated across instances.
+     */
+    public Timer methodTimer(Method method, String exception) {
+        if ("none".equals(exception)) {
+            return methodTimers.computeIfAbsent(method, m -> buildMethodTimer(m, exception));
+        }
+        return buildMethodTimer(method, exception);
+    }
+
+    private Timer buildMethodTimer(Method method, String exception) {
+        Timed timed = method.getAnnotation(Timed.class);
+        if (timed == null) {
+            timed = method.getDeclaringClass().getAnnotation(Timed.class);
+        }
+        return Timer.builder(timed.value())
+            .tag("class", method.getDeclaringClass().getSimpleName())
+            .tag("method", method.getName())
+            .tag("exception", exception)
+            .publishPercentileHistogram()
+            .register(registry);
+    }
+
+    private double readPoolStatistic(String attribute) {
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        try {
+            if (poolStatistics == null) {
+                Set<ObjectName> names = server.queryNames(new ObjectName(POOL_STATISTICS), null);
+                for (ObjectName name : names) {
+                    if (name.toString().contains(DATASOURCE)) {
+                        poolStatistics = name;
+                    }
+                }
+                if (poolStatistics == null) {
+                    return Double.NaN;
+                }
+            }
+            return ((Number) server.getAttribute(poolStatistics, attribute)).doubleValue();
+        } catch (JMException | RuntimeException e) {
+            log.fine("Could not read the connection pool statistic " + attribute + ": " + e.getMessage());
+            return Double.NaN;
+        }
+    }
+}
@@ -0,0 +1,107 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2015, Red Hat, Inc. and/or its affiliates, and individual
+ * contributors by the @authors tag. See the copyright.txt in the
+ * distribution for a full listing of individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.as.quickstarts.kitchensink.util;
+
+import java.lang.reflect.Method;
+import java.time.Duration;
+import java.util.function.Consumer;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import jakarta.annotation.PreDestroy;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+/**
+ * Reports the virtual threads pinned to their carrier thread, which happens when a virtual thread blocks inside a
+ * <code>synchronized</code> block or a native frame, as JDBC drivers often do. It streams the
+ * <code>jdk.VirtualThreadPinned</code> Flight Recorder events, times them in the
+ * <code>kitchensink.virtualthreads.pinned</code> timer and logs them, with the stack trace of the pinning code, at the FINE
+ * level.
+ * <p>
+ * The Flight Recorder streaming API is looked up at runtime, as the application is built for older Java versions.
+ * </p>
+ */
+@ApplicationScoped
+public class PinnedThreadMonitor {
+
+    private static final String PINNED_EVENT = "jdk.VirtualThreadPinned";
+
+    // Pinning shorter than this is too brief to matter
+    private static final Duration THRESHOLD = Duration.ofMillis(
+        Integer.getInteger("kitchensink.virtualThreads.pinnedThreshold", 20));
+
+    @Inject
+    private Logger log;
+
+    @Inject
+    private MeterRegistry registry;
+
+    private AutoCloseable stream;
+
+    /**
+     * Starts monitoring, unless it is already started or the running Java version has no virtual threads.
+     */
+    public synchronized void start() {
+        if (stream != null || !VirtualThreads.isSupported()) {
+            return;
+        }
+        try {
+            Class<?> streamType = Class.forName("jdk.jfr.consumer.RecordingStream");
+            Object recording = streamType.getConstructor().newInstance();
+            Object settings = streamType.getMethod("enable", String.class).invoke(recording, PINNED_EVENT);
+            settings.getClass().getMethod("withStackTrace").invoke(settings);
+            settings.getClass().getMethod("withThreshold", Duration.class).invoke(settings, THRESHOLD);
+            Timer pinned = Timer.builder("kitchensink.virtualthreads.pinned")
+                .description("Time virtual threads spent pinned to their carrier thread")
+                .register(registry);
+            Consumer<Object> onPinned = event -> record(pinned, event);
+            streamType.getMethod("onEvent", String.class, Consumer.class).invoke(recording, PINNED_EVENT, onPinned);
+            streamType.getMethod("startAsync").invoke(recording);
+            stream = (AutoCloseable) recording;
+            log.info("Monitoring virtual threads pinned for more than " + THRESHOLD.toMillis() + " ms");
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            log.log(Level.WARNING, "Could not monitor pinned virtual threads", e);
+        }
+    }
+
+    @PreDestroy
+    public synchronized void stop() {
+        if (stream != null) {
+            try {
+                stream.close();
+            } catch (Exception e) {
+                log.log(Level.FINE, "Could not stop the pinned virtual thread monitoring", e);
+            }
+            stream = null;
+        }
+    }
+
+    private void record(Timer pinned, Object event) {
+        try {
+            Method getDuration = event.getClass().getMethod("getDuration");
+            pinned.record((Duration) getDuration.invoke(event));
+        } catch (ReflectiveOperationException e) {
+            pinned.record(THRESHOLD);
+        }
+        // The event prints its stack trace, which points at the code holding the monitor
+        log.fine(event::toString);
+    }
+}
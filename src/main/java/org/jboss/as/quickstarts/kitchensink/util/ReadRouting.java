@@ -0,0 +1,110 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2015, Red Hat, Inc. and/or its affiliates, and individual
+ * contributors by the @authors tag. See the copyright.txt in the
+ * distribution for a full listing of individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.as.quickstarts.kitchensink.util;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.ws.rs.core.NewCookie;
+
+/**
+ * Decides whether the reads of the current request go to the replica of the database or to the primary.
+ * <p>
+ * Reads go to the replica, unless the client registered a member within the stickiness window: the replica may lag behind
+ * the primary, so such a client keeps reading from the primary until the window is over, and sees its own registrations. The
+ * end of the window is kept by the client in a cookie, which {@link ReadRoutingFilter} reads for every request. The window
+ * length, in seconds, is read from the <code>kitchensink.replica.stickiness</code> system property.
+ * </p>
+ */
+@ApplicationScoped
+public class ReadRouting {
+
+    public static final String COOKIE = "kitchensink-primary-until";
+
+    private final long stickiness = TimeUnit.SECONDS.toMillis(Integer.getInteger("kitchensink.replica.stickiness", 5));
+
+    private final ThreadLocal<Boolean> primary = new ThreadLocal<>();
+
+    /**
+     * @return True if the reads of the current request must go to the primary
+     */
+    public boolean isPrimaryRequired() {
+        return Boolean.TRUE.equals(primary.get());
+    }
+
+    /**
+     * Routes the reads of the current request according to the stickiness cookie sent by the client.
+     *
+     * @param cookie The value of the cookie, or null
+     */
+    public void route(String cookie) {
+        primary.set(isWithinWindow(cookie));
+    }
+
+    /**
+     * Forgets the routing of the current request, once it is over.
+     */
+    public void clear() {
+        primary.remove();
+    }
+
+    /**
+     * Runs work, such as the part of a request handed over to another thread, with the given routing.
+     */
+    public <T> T callWith(boolean primaryRequired, Supplier<T> work) {
+        Boolean previous = primary.get();
+        primary.set(primaryRequired);
+        try {
+            return work.get();
+        } finally {
+            if (previous == null) {
+                primary.remove();
+            } else {
+                primary.set(previous);
+            }
+        }
+    }
+
+    /**
+     * Returns the cookie keeping the client on the primary for the stickiness window, to be sent once the client has written
+     * to the database.
+     */
+    public NewCookie stickinessCookie() {
+        long until = System.currentTimeMillis() + stickiness;
+        return new NewCookie.Builder(COOKIE)
+            .value(String.valueOf(until))
+            .path("/")
+            .maxAge((int) TimeUnit.MILLISECONDS.toSeconds(stickiness) + 1)
+            .httpOnly(true)
+            .build();
+    }
+
+    private boolean isWithinWindow(String cookie) {
+        if (cookie == null) {
+            return false;
+        }
+        try {
+            long now = System.currentTimeMillis();
+            long until = Long.parseLong(cookie);
+            // Later ends than this instance ever hands out are ignored
+            return until > now && until <= now + stickiness;
+        } catch (NumberFormatException e) {
+            return false;
+        }
+    }
+}
@@ -0,0 +1,100 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2015, Red Hat, Inc. and/or its affiliates, and individual
+ * contributors by the @authors tag. See the copyright.txt in the
+ * distribution for a full listing of individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.as.quickstarts.kitchensink.util;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ExecutorService;
+import java.util.function.Supplier;
+import java.util.logging.Logger;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.annotation.Resource;
+import jakarta.enterprise.concurrent.ContextService;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+
+/**
+ * Runs the blocking part of REST requests, such as queries and registrations, off the container worker threads when the
+ * <code>kitchensink.virtualThreads</code> system property is true and the server runs on Java 21 or later.
+ * <p>
+ * In that mode each request gets a new virtual thread, so the number of requests waiting on the database is no longer
+ * bounded by the worker thread pool but by the datasource pool, which should then be sized accordingly. The work runs with
+ * the context of the application captured by the container {@link ContextService}, so it can call EJBs and use the
+ * persistence context as on a container thread, and it reads from the same database as the calling thread would, see
+ * {@link ReadRouting}. {@link PinnedThreadMonitor} reports the virtual threads that get pinned.
+ * </p>
+ * <p>
+ * Otherwise, which is the default, the work runs on the calling thread as before.
+ * </p>
+ */
+@ApplicationScoped
+public class RequestExecutor {
+
+    @Inject
+    private Logger log;
+
+    @Inject
+    private PinnedThreadMonitor pinnedThreadMonitor;
+
+    @Inject
+    private ReadRouting readRouting;
+
+    @Resource
+    private ContextService contextService;
+
+    // Null unless the requests run on virtual threads
+    private ExecutorService virtualThreads;
+
+    @PostConstruct
+    public void start() {
+        if (!Boolean.getBoolean("kitchensink.virtualThreads")) {
+            return;
+        }
+        virtualThreads = VirtualThreads.newPerTaskExecutor().orElse(null);
+        if (virtualThreads == null) {
+            log.warning("Virtual threads need Java 21 or later, requests run on the container threads");
+            return;
+        }
+        pinnedThreadMonitor.start();
+        log.info("Running requests on virtual threads");
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (virtualThreads != null) {
+            virtualThreads.shutdown();
+        }
+    }
+
+    /**
+     * Runs a piece of work, on a virtual thread if enabled.
+     *
+     * @param work The work to run
+     * @return The result of the work, already completed unless it runs on a virtual thread
+     */
+    @SuppressWarnings("unchecked")
+    public <T> CompletionStage<T> supply(Supplier<T> work) {
+        if (virtualThreads == null) {
+            return CompletableFuture.completedFuture(work.get());
+        }
+        boolean primaryRequired = readRouting.isPrimaryRequired();
+        Supplier<T> routed = () -> readRouting.callWith(primaryRequired, work);
+        return CompletableFuture.supplyAsync(contextService.createContextualProxy(routed, Supplier.class), virtualThreads);
+    }
+}
@@ -21,7 +21,9 @@ import java.util.logging.Logger;
 import jakarta.enterprise.inject.Produces;
 import jakarta.enterprise.inject.spi.InjectionPoint;
 import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
 import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.PersistenceUnit;
 
 /**
  * This class uses CDI to alias Jakarta EE resources, such as the persistence context, to CDI beans
@@ -34,12 +36,25 @@ import jakarta.persistence.PersistenceContext;
  * &#064;Inject
  * private EntityManager em;
  * </pre>
+ *
+ * <p>
+ * The persistence context of the read-only replica of the database is qualified with {@link Replica}.
+ * </p>
  */
 public class Resources {
     @Produces
-    @PersistenceContext
+    @PersistenceContext(unitName = "primary")
     private EntityManager em;
 
+    @Produces
+    @PersistenceUnit(unitName = "primary")
+    private EntityManagerFactory emf;
+
+    @Produces
+    @Replica
+    @PersistenceContext(unitName = "replica")
+    private EntityManager replica;
+
     @Produces
     public Logger produceLog(InjectionPoint injectionPoint) {
         return Logger.getLogger(injectionPoint.getMember().getDeclaringClass().getName());
@@ -16,4 +16,4 @@
 --
 
 -- You can use this file to load seed data into the database using SQL statements
-insert into Member (id, name, email, phone_number) values (0, 'John Smith', 'john.smith@mailinator.com', '2125551212') 
\ No newline at end of file
+insert into Member (id, name, email, phone_number, name_key, email_key, version, updated_at) values (0, 'John Smith', 'john.smith@mailinator.com', '2125551212', 'john smith', 'john.smith@mailinator.com', 0, CURRENT_TIMESTAMP) 
\ No newline at end of file
@@ -16,17 +16,30 @@
  */
 package org.jboss.as.quickstarts.kitchensink.test;
 
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.logging.Logger;
 
 import jakarta.inject.Inject;
+import jakarta.validation.Validator;
 
 import org.jboss.arquillian.container.test.api.Deployment;
 import org.jboss.arquillian.junit.Arquillian;
+import org.jboss.as.quickstarts.kitchensink.data.MemberCursor;
+import org.jboss.as.quickstarts.kitchensink.data.MemberRepository;
 import org.jboss.as.quickstarts.kitchensink.model.Member;
+import org.jboss.as.quickstarts.kitchensink.model.MemberSummary;
+import org.jboss.as.quickstarts.kitchensink.model.Member_;
+import org.jboss.as.quickstarts.kitchensink.service.DuplicateEmailException;
 import org.jboss.as.quickstarts.kitchensink.service.MemberRegistration;
+import org.jboss.as.quickstarts.kitchensink.service.MemberValidator;
+import org.jboss.as.quickstarts.kitchensink.util.ReadRouting;
+import org.jboss.as.quickstarts.kitchensink.util.Replica;
 import org.jboss.as.quickstarts.kitchensink.util.Resources;
+import org.jboss.as.quickstarts.kitchensink.util.Timed;
 import org.jboss.shrinkwrap.api.Archive;
 import org.jboss.shrinkwrap.api.ShrinkWrap;
 import org.jboss.shrinkwrap.api.asset.StringAsset;
@@ -39,7 +52,9 @@ public class MemberRegistrationIT {
     @Deployment
     public static Archive<?> createTestArchive() {
         return ShrinkWrap.create(WebArchive.class, "test.war")
-            .addClasses(Member.class, MemberRegistration.class, Resources.class)
+            .addClasses(Member.class, Member_.class, MemberSummary.class, MemberRegistration.class,
+                DuplicateEmailException.class, MemberValidator.class, MemberRepository.class, MemberCursor.class,
+                ReadRouting.class, Resources.class, Replica.class, Timed.class)
             .addAsResource("META-INF/test-persistence.xml", "META-INF/persistence.xml")
             .addAsWebInfResource(new StringAsset("<beans xmlns=\"https://jakarta.ee/xml/ns/jakartaee\" xmlns:xsi=\"http://www.w3.org/2001/XMLSchema-instance\"\n"
                         + "xsi:schemaLocation=\"https://jakarta.ee/xml/ns/jakartaee https://jakarta.ee/xml/ns/jakartaee/beans_3_0.xsd\"\n"
@@ -52,6 +67,15 @@ public class MemberRegistrationIT {
     @Inject
     MemberRegistration memberRegistration;
 
+    @Inject
+    MemberRepository memberRepository;
+
+    @Inject
+    MemberValidator memberValidator;
+
+    @Inject
+    Validator validator;
+
     @Inject
     Logger log;
 
@@ -66,4 +90,107 @@ public class MemberRegistrationIT {
         log.info(newMember.getName() + " was persisted with id " + newMember.getId());
     }
 
+    @Test(expected = DuplicateEmailException.class)
+    public void testRegisterDuplicateEmail() throws Exception {
+        Member first = new Member();
+        first.setName("John Doe");
+        first.setEmail("john.doe@mailinator.com");
+        first.setPhoneNumber("2125551235");
+        memberRegistration.register(first);
+
+        Member second = new Member();
+        second.setName("Johnny Doe");
+        second.setEmail("john.doe@mailinator.com");
+        second.setPhoneNumber("2125551236");
+        memberRegistration.register(second);
+    }
+
+    @Test
+    public void testPageByName() throws Exception {
+        // Members sharing a name are ordered by id, the pages must neither skip nor repeat them
+        for (int i = 0; i < 5; i++) {
+            memberRegistration.register(member("Page Tie", "page.tie" + i + "@mailinator.com", "212555124" + i));
+        }
+        List<Long> all = ids(memberRepository.findPageOrderedByName(null, 1000));
+
+        List<List<MemberSummary>> pages = new ArrayList<>();
+        List<Long> walked = new ArrayList<>();
+        List<MemberSummary> page = memberRepository.findPageOrderedByName(null, 2);
+        while (!page.isEmpty()) {
+            pages.add(page);
+            walked.addAll(ids(page));
+            String next = MemberCursor.after(page.get(page.size() - 1)).encode();
+            page = memberRepository.findPageOrderedByName(MemberCursor.decode(next), 2);
+        }
+        assertEquals(all, walked);
+
+        // Paging backwards from the first member of a page gives the page before it
+        for (int i = 1; i < pages.size(); i++) {
+            String previous = MemberCursor.before(pages.get(i).get(0)).encode();
+            List<MemberSummary> before = memberRepository.findPageBeforeOrderedByName(MemberCursor.decode(previous), 2);
+            assertEquals(ids(pages.get(i - 1)), ids(before));
+        }
+        assertEquals(List.of(), memberRepository.findPageBeforeOrderedByName(MemberCursor.before(pages.get(0).get(0)), 2));
+    }
+
+    @Test
+    public void testSearchByPrefix() throws Exception {
+        memberRegistration.register(member("Zq Anna", "anna.zq@mailinator.com", "2125551250"));
+        memberRegistration.register(member("Bob Zed", "zq.bob@mailinator.com", "2125551251"));
+        memberRegistration.register(member("Carl Zed", "zq.carl@mailinator.com", "2125551252"));
+        memberRegistration.register(member("Zq Dora", "zq.dora@mailinator.com", "2125551253"));
+        memberRegistration.register(member("Eve Zed", "zq.eve@mailinator.com", "2125551254"));
+
+        // The first members by name only match on their email
+        assertEquals(List.of("Bob Zed", "Carl Zed", "Eve Zed"), names(memberRepository.searchByPrefix("ZQ", 3)));
+        // A member matching on both is only returned once
+        assertEquals(List.of("Bob Zed", "Carl Zed", "Eve Zed", "Zq Anna", "Zq Dora"),
+            names(memberRepository.searchByPrefix("zq", 10)));
+        assertEquals(List.of("Zq Anna"), names(memberRepository.searchByPrefix("zq a", 10)));
+    }
+
+    @Test
+    public void testValidatorMatchesBeanValidation() throws Exception {
+        List<Member> members = List.of(
+            new Member(),
+            member("Jane Doe", "jane@mailinator.com", "2125551234"),
+            // Several violations on one field: the message must not depend on the order of the checks
+            member("Jane Doe 1234567890123456789", "jane@mailinator.com", "2125551234"),
+            member("", "", "abc"),
+            member("   ", "not an email", "123456789012345"),
+            member("Jane Doe", "jane@@mailinator.com", "12.5"),
+            member("Jane Doe", "\"jane doe\"@mailinator.com", "2125551234.0"),
+            member("Jane Doe", "jane@[127.0.0.1]", "-2125551234"),
+            member(null, null, "0000000000000"));
+        for (Member member : members) {
+            assertEquals("Errors of " + member.getName() + ", " + member.getEmail() + ", " + member.getPhoneNumber(),
+                MemberValidator.toErrorMap(validator.validate(member)),
+                memberValidator.validate(member));
+        }
+    }
+
+    private static List<Long> ids(List<MemberSummary> members) {
+        List<Long> ids = new ArrayList<>();
+        for (MemberSummary member : members) {
+            ids.add(member.getId());
+        }
+        return ids;
+    }
+
+    private static List<String> names(List<MemberSummary> members) {
+        List<String> names = new ArrayList<>();
+        for (MemberSummary member : members) {
+            names.add(member.getName());
+        }
+        return names;
+    }
+
+    private static Member member(String name, String email, String phoneNumber) {
+        Member member = new Member();
+        member.setName(name);
+        member.setEmail(email);
+        member.setPhoneNumber(phoneNumber);
+        return member;
+    }
+
 }
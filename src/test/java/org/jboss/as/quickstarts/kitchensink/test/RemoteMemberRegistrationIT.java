@@ -17,15 +17,31 @@
 package org.jboss.as.quickstarts.kitchensink.test;
 
 import jakarta.json.Json;
+import jakarta.json.JsonArray;
+import jakarta.json.JsonArrayBuilder;
 import jakarta.json.JsonObject;
 
+import java.io.StringReader;
+
 import java.util.logging.Logger;
 
 import java.net.URI;
 import java.net.URISyntaxException;
+import java.net.URLEncoder;
 import java.net.http.HttpClient;
 import java.net.http.HttpRequest;
 import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
 
 import org.jboss.as.quickstarts.kitchensink.model.Member;
 import org.junit.Assert;
@@ -35,6 +51,8 @@ public class RemoteMemberRegistrationIT {
 
     private static final Logger log = Logger.getLogger(RemoteMemberRegistrationIT.class.getName());
 
+    private static final Pattern MEMBER_LINK = Pattern.compile("/rest/members/([0-9]+)\"");
+
     protected URI getHTTPEndpoint() {
         String host = getServerHost();
         if (host == null) {
@@ -47,6 +65,14 @@ public class RemoteMemberRegistrationIT {
         }
     }
 
+    protected URI getPageEndpoint(String query) {
+        String host = getServerHost();
+        if (host == null) {
+            host = "http://localhost:8080/kitchensink";
+        }
+        return URI.create(host + "/index.jsf" + (query == null ? "" : "?" + query));
+    }
+
     private String getServerHost() {
         String host = System.getenv("SERVER_HOST");
         if (host == null) {
@@ -74,4 +100,309 @@ public class RemoteMemberRegistrationIT {
         Assert.assertEquals("", response.body().toString() );
     }
 
+    @Test
+    public void testUpdateAndDelete() throws Exception {
+        HttpClient client = HttpClient.newHttpClient();
+        JsonObject json = Json.createObjectBuilder()
+                .add("name", "John Roe")
+                .add("email", "john.roe@mailinator.com")
+                .add("phoneNumber", "2125551235").build();
+        HttpRequest register = HttpRequest.newBuilder(getHTTPEndpoint())
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(json.toString()))
+                .build();
+        Assert.assertEquals(200, client.send(register, HttpResponse.BodyHandlers.ofString()).statusCode());
+
+        HttpRequest search = HttpRequest.newBuilder(URI.create(getHTTPEndpoint() + "/search?q=john.roe")).GET().build();
+        JsonArray found = Json.createReader(new StringReader(client.send(search, HttpResponse.BodyHandlers.ofString()).body()))
+                .readArray();
+        URI member = URI.create(getHTTPEndpoint() + "/" + found.getJsonObject(0).getJsonNumber("id").longValue());
+        String tag = client.send(HttpRequest.newBuilder(member).GET().build(), HttpResponse.BodyHandlers.ofString())
+                .headers().firstValue("ETag").orElseThrow();
+
+        HttpRequest patch = HttpRequest.newBuilder(member)
+                .header("Content-Type", "application/merge-patch+json")
+                .header("If-Match", tag)
+                .method("PATCH", HttpRequest.BodyPublishers.ofString("{\"name\":\"John Doe\"}"))
+                .build();
+        HttpResponse<String> patched = client.send(patch, HttpResponse.BodyHandlers.ofString());
+        Assert.assertEquals(200, patched.statusCode());
+        String newTag = patched.headers().firstValue("ETag").orElseThrow();
+        Assert.assertNotEquals(tag, newTag);
+
+        // The first tag is now outdated
+        HttpRequest staleDelete = HttpRequest.newBuilder(member).header("If-Match", tag).DELETE().build();
+        Assert.assertEquals(412, client.send(staleDelete, HttpResponse.BodyHandlers.ofString()).statusCode());
+
+        HttpRequest delete = HttpRequest.newBuilder(member).header("If-Match", newTag).DELETE().build();
+        Assert.assertEquals(204, client.send(delete, HttpResponse.BodyHandlers.ofString()).statusCode());
+
+        // The email filter still holds the email of the deleted member, the database says it is free
+        Assert.assertTrue(isEmailAvailable(client, "john.roe@mailinator.com"));
+    }
+
+    @Test
+    public void testConditionalRequests() throws Exception {
+        HttpClient client = HttpClient.newHttpClient();
+        HttpRequest register = HttpRequest.newBuilder(getHTTPEndpoint())
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(member("Joan Roe", "joan.roe@mailinator.com", "2125551241").toString()))
+                .build();
+        Assert.assertEquals(200, client.send(register, HttpResponse.BodyHandlers.ofString()).statusCode());
+
+        HttpRequest search = HttpRequest.newBuilder(URI.create(getHTTPEndpoint() + "/search?q=joan.roe")).GET().build();
+        JsonArray found = Json.createReader(new StringReader(client.send(search, HttpResponse.BodyHandlers.ofString()).body()))
+                .readArray();
+        URI member = URI.create(getHTTPEndpoint() + "/" + found.getJsonObject(0).getJsonNumber("id").longValue());
+        String tag = client.send(HttpRequest.newBuilder(member).GET().build(), HttpResponse.BodyHandlers.ofString())
+                .headers().firstValue("ETag").orElseThrow();
+
+        HttpRequest revalidate = HttpRequest.newBuilder(member).header("If-None-Match", tag).GET().build();
+        HttpResponse<String> notModified = client.send(revalidate, HttpResponse.BodyHandlers.ofString());
+        Assert.assertEquals(304, notModified.statusCode());
+        Assert.assertEquals("", notModified.body());
+
+        HttpRequest update = HttpRequest.newBuilder(member)
+                .header("Content-Type", "application/json")
+                .header("If-Match", tag)
+                .PUT(HttpRequest.BodyPublishers.ofString(member("Joan Doe", "joan.roe@mailinator.com", "2125551241").toString()))
+                .build();
+        Assert.assertEquals(200, client.send(update, HttpResponse.BodyHandlers.ofString()).statusCode());
+
+        // The first tag is now outdated, for reads and writes alike
+        Assert.assertEquals(200, client.send(revalidate, HttpResponse.BodyHandlers.ofString()).statusCode());
+        HttpRequest staleUpdate = HttpRequest.newBuilder(member)
+                .header("Content-Type", "application/json")
+                .header("If-Match", tag)
+                .PUT(HttpRequest.BodyPublishers.ofString(member("Joan Poe", "joan.roe@mailinator.com", "2125551241").toString()))
+                .build();
+        Assert.assertEquals(412, client.send(staleUpdate, HttpResponse.BodyHandlers.ofString()).statusCode());
+
+        // The member list only has an entity tag once its view is loaded
+        HttpResponse<String> list = client.send(HttpRequest.newBuilder(getHTTPEndpoint()).GET().build(),
+                HttpResponse.BodyHandlers.ofString());
+        Assert.assertEquals(200, list.statusCode());
+        if (list.headers().firstValue("ETag").isPresent()) {
+            HttpRequest revalidateList = HttpRequest.newBuilder(getHTTPEndpoint())
+                    .header("If-None-Match", list.headers().firstValue("ETag").get())
+                    .GET().build();
+            Assert.assertEquals(304, client.send(revalidateList, HttpResponse.BodyHandlers.ofString()).statusCode());
+        }
+    }
+
+    @Test
+    public void testEmailAvailable() throws Exception {
+        HttpClient client = HttpClient.newHttpClient();
+        JsonObject json = Json.createObjectBuilder()
+                .add("name", "Jane Roe")
+                .add("email", "jane.roe@mailinator.com")
+                .add("phoneNumber", "2125551236").build();
+        HttpRequest register = HttpRequest.newBuilder(getHTTPEndpoint())
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(json.toString()))
+                .build();
+        Assert.assertEquals(200, client.send(register, HttpResponse.BodyHandlers.ofString()).statusCode());
+
+        Assert.assertFalse(isEmailAvailable(client, "jane.roe@mailinator.com"));
+        Assert.assertTrue(isEmailAvailable(client, "nobody.roe@mailinator.com"));
+    }
+
+    @Test
+    public void testBatch() throws Exception {
+        HttpClient client = HttpClient.newHttpClient();
+        JsonObject existing = member("Jack Roe", "jack.roe@mailinator.com", "2125551237");
+        HttpRequest register = HttpRequest.newBuilder(getHTTPEndpoint())
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(existing.toString()))
+                .build();
+        Assert.assertEquals(200, client.send(register, HttpResponse.BodyHandlers.ofString()).statusCode());
+
+        // A new member, the same email again, an invalid name, and the email registered above
+        JsonArray batch = Json.createArrayBuilder()
+                .add(member("Jill Roe", "jill.roe@mailinator.com", "2125551238"))
+                .add(member("Jill Doe", "jill.roe@mailinator.com", "2125551239"))
+                .add(member("Jill 2", "jill.two@mailinator.com", "2125551240"))
+                .add(existing)
+                .build();
+        HttpRequest request = HttpRequest.newBuilder(URI.create(getHTTPEndpoint() + "/batch"))
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(batch.toString()))
+                .build();
+        HttpResponse<String> response = client.send(request, HttpResponse.BodyHandlers.ofString());
+        Assert.assertEquals(200, response.statusCode());
+        JsonArray results = Json.createReader(new StringReader(response.body())).readArray();
+        Assert.assertEquals(4, results.size());
+        int[] statuses = { 200, 409, 400, 409 };
+        for (int i = 0; i < statuses.length; i++) {
+            Assert.assertEquals(i, results.getJsonObject(i).getInt("index"));
+            Assert.assertEquals(statuses[i], results.getJsonObject(i).getInt("status"));
+        }
+        Assert.assertTrue(results.getJsonObject(0).containsKey("id"));
+        Assert.assertEquals("Email taken", results.getJsonObject(1).getJsonObject("errors").getString("email"));
+        Assert.assertTrue(results.getJsonObject(2).getJsonObject("errors").containsKey("name"));
+        Assert.assertEquals("Email taken", results.getJsonObject(3).getJsonObject("errors").getString("email"));
+        Assert.assertFalse(isEmailAvailable(client, "jill.roe@mailinator.com"));
+        Assert.assertTrue(isEmailAvailable(client, "jill.two@mailinator.com"));
+    }
+
+    @Test
+    public void testMemberTablePages() throws Exception {
+        HttpClient client = HttpClient.newHttpClient();
+        // More members than fit on one page of the table, with a few sharing a name
+        JsonArrayBuilder batch = Json.createArrayBuilder();
+        for (int i = 0; i < 25; i++) {
+            batch.add(member(i % 5 == 0 ? "Table Tie" : "Table Roe " + (char) ('a' + i), "table.roe" + i + "@mailinator.com",
+                    "21255513" + (10 + i)));
+        }
+        HttpRequest register = HttpRequest.newBuilder(URI.create(getHTTPEndpoint() + "/batch"))
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(batch.build().toString()))
+                .build();
+        Assert.assertEquals(200, client.send(register, HttpResponse.BodyHandlers.ofString()).statusCode());
+
+        String first = getPage(client, null);
+        List<Long> firstIds = memberIds(first);
+        Assert.assertEquals(20, firstIds.size());
+        Assert.assertNull(cursor(first, "before"));
+
+        String next = cursor(first, "after");
+        Assert.assertNotNull(next);
+        String second = getPage(client, "after=" + next);
+        List<Long> secondIds = memberIds(second);
+        Assert.assertFalse(secondIds.isEmpty());
+        Assert.assertTrue(Collections.disjoint(firstIds, secondIds));
+
+        String previous = cursor(second, "before");
+        Assert.assertNotNull(previous);
+        Assert.assertEquals(firstIds, memberIds(getPage(client, "before=" + previous)));
+    }
+
+    @Test
+    public void testStreamReplaysUpdates() throws Exception {
+        HttpClient client = HttpClient.newHttpClient();
+        HttpRequest register = HttpRequest.newBuilder(getHTTPEndpoint())
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(member("Sue Roe", "sue.roe@mailinator.com", "2125551242").toString()))
+                .build();
+        Assert.assertEquals(200, client.send(register, HttpResponse.BodyHandlers.ofString()).statusCode());
+
+        // An event id at the epoch replays every member, the new one included
+        String registeredId;
+        try (EventStream stream = new EventStream(client, "0-0")) {
+            registeredId = stream.next("sue.roe@mailinator.com").getString("id");
+        }
+
+        try (EventStream connected = new EventStream(client, registeredId)) {
+            JsonObject registered = connected.next("sue.roe@mailinator.com");
+            Assert.assertEquals("Sue Roe", registered.getJsonObject("data").getString("name"));
+            URI member = URI.create(getHTTPEndpoint() + "/" + registered.getJsonObject("data").getJsonNumber("id").longValue());
+            HttpRequest patch = HttpRequest.newBuilder(member)
+                    .header("Content-Type", "application/merge-patch+json")
+                    .method("PATCH", HttpRequest.BodyPublishers.ofString("{\"name\":\"Sue Doe\"}"))
+                    .build();
+            Assert.assertEquals(200, client.send(patch, HttpResponse.BodyHandlers.ofString()).statusCode());
+            // A client that stayed connected gets the update
+            Assert.assertEquals("Sue Doe", connected.next("sue.roe@mailinator.com").getJsonObject("data").getString("name"));
+        }
+
+        // So does a client reconnecting from before it
+        try (EventStream reconnected = new EventStream(client, registeredId)) {
+            Assert.assertEquals("Sue Doe", reconnected.next("sue.roe@mailinator.com").getJsonObject("data").getString("name"));
+        }
+    }
+
+    private String getPage(HttpClient client, String query) throws Exception {
+        HttpResponse<String> response = client.send(HttpRequest.newBuilder(getPageEndpoint(query)).GET().build(),
+                HttpResponse.BodyHandlers.ofString());
+        Assert.assertEquals(200, response.statusCode());
+        return response.body();
+    }
+
+    private List<Long> memberIds(String page) {
+        List<Long> ids = new ArrayList<>();
+        Matcher matcher = MEMBER_LINK.matcher(page);
+        while (matcher.find()) {
+            ids.add(Long.valueOf(matcher.group(1)));
+        }
+        return ids;
+    }
+
+    // Cursors are URL safe, so they are used as they appear in the links
+    private String cursor(String page, String name) {
+        Matcher matcher = Pattern.compile("[?&;]" + name + "=([A-Za-z0-9_-]+)").matcher(page);
+        return matcher.find() ? matcher.group(1) : null;
+    }
+
+    // The events of the member stream, read in the background as objects holding the event id and its data
+    private final class EventStream implements AutoCloseable {
+
+        private final BlockingQueue<JsonObject> events = new LinkedBlockingQueue<>();
+
+        private final Stream<String> lines;
+
+        EventStream(HttpClient client, String lastEventId) throws Exception {
+            HttpRequest request = HttpRequest.newBuilder(URI.create(getHTTPEndpoint() + "/stream"))
+                    .header("Accept", "text/event-stream")
+                    .header("Last-Event-ID", lastEventId)
+                    .GET().build();
+            HttpResponse<Stream<String>> response = client.send(request, HttpResponse.BodyHandlers.ofLines());
+            Assert.assertEquals(200, response.statusCode());
+            lines = response.body();
+            Thread reader = new Thread(() -> {
+                String id = null;
+                StringBuilder data = new StringBuilder();
+                try {
+                    for (Iterator<String> it = lines.iterator(); it.hasNext();) {
+                        String line = it.next();
+                        if (line.startsWith("id:")) {
+                            id = line.substring(3).strip();
+                        } else if (line.startsWith("data:")) {
+                            data.append(line.substring(5).strip());
+                        } else if (line.isEmpty() && data.length() > 0) {
+                            events.add(Json.createObjectBuilder()
+                                    .add("id", id)
+                                    .add("data", Json.createReader(new StringReader(data.toString())).readObject())
+                                    .build());
+                            data.setLength(0);
+                        }
+                    }
+                } catch (RuntimeException e) {
+                    log.fine("Member stream closed: " + e.getMessage());
+                }
+            });
+            reader.setDaemon(true);
+            reader.start();
+        }
+
+        // The next event of the member with the given email
+        JsonObject next(String email) throws InterruptedException {
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+            for (long left = deadline - System.nanoTime(); left > 0; left = deadline - System.nanoTime()) {
+                JsonObject event = events.poll(left, TimeUnit.NANOSECONDS);
+                if (event != null && email.equals(event.getJsonObject("data").getString("email"))) {
+                    return event;
+                }
+            }
+            throw new AssertionError("No event of " + email);
+        }
+
+        @Override
+        public void close() {
+            lines.close();
+        }
+    }
+
+    private JsonObject member(String name, String email, String phoneNumber) {
+        return Json.createObjectBuilder()
+                .add("name", name)
+                .add("email", email)
+                .add("phoneNumber", phoneNumber).build();
+    }
+
+    private boolean isEmailAvailable(HttpClient client, String email) throws Exception {
+        URI uri = URI.create(getHTTPEndpoint() + "/email-available?email=" + URLEncoder.encode(email, StandardCharsets.UTF_8));
+        HttpResponse<String> response = client.send(HttpRequest.newBuilder(uri).GET().build(), HttpResponse.BodyHandlers.ofString());
+        Assert.assertEquals(200, response.statusCode());
+        return Json.createReader(new StringReader(response.body())).readObject().getBoolean("available");
+    }
 }